@@ -0,0 +1,343 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 无界面的批量解析：从输入逐行读取域名，保持固定数量的查询在途（可另设每秒查询数上限），
+// 结果按完成顺序以CSV或NDJSON格式流式输出，整个列表不会被一次性读入内存。
+// PTR模式下输入可以是IP地址或CIDR地址块，地址块在发送查询时才逐个展开
+public class DNSBatchResolver {
+    // 输出格式
+    enum OutputFormat { CSV, NDJSON }
+
+    // 单个域名的解析结果
+    record BatchResult(String domain, String status, List<String> addresses, int attempts, long elapsedMillis) {
+    }
+
+    // 一次成功的查询及其尝试次数
+    private record Attempt(DNSResponse response, int attempts) {
+    }
+
+    // 最终失败的查询及其尝试次数
+    private static final class AttemptFailure extends RuntimeException {
+        final int attempts;
+
+        AttemptFailure(Throwable cause, int attempts) {
+            super(cause);
+            this.attempts = attempts;
+        }
+    }
+
+    // 结果的接收方：在写出线程上按完成顺序逐个调用，返回后才归还并发许可
+    interface ResultSink {
+        void accept(BatchResult result) throws IOException;
+    }
+
+    private static final BatchResult END = new BatchResult(null, null, null, 0, 0);// 写出线程的结束标记
+
+    private final DNSClient client;// 带缓存的DNS客户端
+    private final int concurrency;// 同时在途的最大查询数
+    private final int retries;// 超时后的最大重试次数
+    private final OutputFormat format;// 输出格式
+    private final short type;// 查询的记录类型
+    private final DNSRateLimiter rateLimiter;// 发送速率限制，为null时只受并发数限制
+
+    //方法
+    public DNSBatchResolver(DNSClient client, int concurrency, int retries, OutputFormat format) {
+        this(client, concurrency, retries, format, DNSRecordType.A, 0);
+    }
+
+    // queriesPerSecond为0时不限速
+    public DNSBatchResolver(DNSClient client, int concurrency, int retries, OutputFormat format,
+                            short type, double queriesPerSecond) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("并发数必须大于0");
+        }
+        if (queriesPerSecond < 0) {
+            throw new IllegalArgumentException("速率不能为负数");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+        this.retries = retries;
+        this.format = format;
+        this.type = type;
+        // 突发量取0.1秒的配额，既平滑发送又不会因线程调度误差损失速率
+        this.rateLimiter = queriesPerSecond > 0
+                ? new DNSRateLimiter(queriesPerSecond, (int) Math.max(1, queriesPerSecond / 10)) : null;
+    }
+
+    // 解析输入中的全部域名（每行一个，忽略空行和#注释），按输出格式写出，返回处理的域名数（地址块按展开后的地址计）
+    public long resolveAll(BufferedReader input, Writer output) throws IOException, InterruptedException {
+        if (format == OutputFormat.CSV) {
+            output.write("domain,status,addresses,attempts,elapsed_ms\n");
+        }
+        long count = resolveAll(input, result -> writeResult(output, result));
+        output.flush();
+        return count;
+    }
+
+    // 解析输入中的全部域名，结果交给sink，返回处理的域名数
+    public long resolveAll(BufferedReader input, ResultSink sink) throws IOException, InterruptedException {
+        // 结果交给接收方后才归还许可，因此在途查询与待处理结果合计不超过并发数
+        Semaphore window = new Semaphore(concurrency);
+        LinkedBlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+        AtomicReference<Exception> writeError = new AtomicReference<>();// 接收方抛出的异常（IOException或RuntimeException）
+
+        Thread writer = new Thread(() -> {
+            try {
+                BatchResult result;
+                while ((result = results.take()) != END) {
+                    if (writeError.get() == null) {
+                        try {
+                            sink.accept(result);
+                        } catch (IOException | RuntimeException e) {
+                            writeError.set(e);// 读取循环随之停止；之后的结果只取出并归还许可，直到在途查询全部结束
+                        }
+                    }
+                    window.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "dns-batch-writer");
+        writer.start();
+
+        long count = 0;
+        try {
+            String line;
+            while ((line = input.readLine()) != null && writeError.get() == null) {
+                String entry = line.trim();
+                if (entry.isEmpty() || entry.startsWith("#")) {
+                    continue;
+                }
+                Iterator<String> domains;
+                try {
+                    domains = expand(entry);
+                } catch (IllegalArgumentException e) {
+                    window.acquire();
+                    count++;
+                    results.add(new BatchResult(entry, "INVALID", List.of(), 0, 0));
+                    continue;
+                }
+                while (domains.hasNext() && writeError.get() == null) {
+                    String domain = domains.next();
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    window.acquire();
+                    count++;
+                    long start = System.nanoTime();
+                    String queryName = queryName(domain);
+                    if (queryName == null) {
+                        results.add(new BatchResult(domain, "INVALID", List.of(), 0, 0));
+                        continue;
+                    }
+                    resolveWithRetry(queryName, 1).whenComplete((result, error) ->
+                            results.add(toResultSafely(domain, result, error, start)));
+                }
+            }
+            window.acquire(concurrency);// 等待全部查询完成并写出
+        } finally {
+            results.add(END);
+            writer.join();
+        }
+        Exception error = writeError.get();
+        if (error instanceof IOException e) {
+            throw e;
+        }
+        if (error != null) {
+            throw (RuntimeException) error;
+        }
+        return count;
+    }
+
+    // PTR模式下把CIDR地址块展开为逐个地址（惰性生成），其他输入原样返回
+    private Iterator<String> expand(String entry) {
+        if (type == DNSRecordType.PTR && entry.indexOf('/') >= 0) {
+            return DNSCidrRange.parse(entry).iterator();
+        }
+        return List.of(entry).iterator();
+    }
+
+    // 实际查询的域名：PTR模式下IP地址换成对应的反向解析域名；地址格式错误时返回null
+    private String queryName(String domain) {
+        if (type != DNSRecordType.PTR || !DNSRecordType.isAddressLiteral(domain)) {
+            return domain;
+        }
+        try {
+            return DNSRecordType.reverseName(InetAddress.getByName(domain));// 字面量不会触发域名解析
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    // 查询一个域名，超时后重试，返回最终响应和实际尝试次数
+    private CompletableFuture<Attempt> resolveWithRetry(String domain, int attempt) {
+        return client.resolve(domain, type)
+                .thenApply(response -> new Attempt(response, attempt))
+                .exceptionallyCompose(error -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof TimeoutException && attempt <= retries) {
+                        return resolveWithRetry(domain, attempt + 1);
+                    }
+                    return CompletableFuture.failedFuture(new AttemptFailure(cause, attempt));
+                });
+    }
+
+    // 每个取得许可的查询必须恰好产生一个结果，否则许可不会归还、resolveAll无法结束；
+    // 应答格式错误导致记录解码失败（如压缩指针循环）时按ERROR输出
+    private BatchResult toResultSafely(String domain, Attempt attempt, Throwable error, long start) {
+        try {
+            return toResult(domain, attempt, error, start);
+        } catch (RuntimeException e) {
+            return new BatchResult(domain, "ERROR", List.of(), attempt != null ? attempt.attempts() : 1,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private BatchResult toResult(String domain, Attempt attempt, Throwable error, long start) {
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (attempt != null) {
+            DNSResponse response = attempt.response();
+            List<String> answers = type == DNSRecordType.A || type == DNSRecordType.AAAA
+                    ? response.getIPAddresses() : response.getAnswerData(type);
+            return new BatchResult(domain, response.getResponseCodeName(), answers,
+                    attempt.attempts(), elapsedMillis);
+        }
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        int attempts = 1;
+        if (cause instanceof AttemptFailure failure) {
+            attempts = failure.attempts;
+            cause = failure.getCause();
+        }
+        String status = cause instanceof TimeoutException ? "TIMEOUT" : "ERROR";
+        return new BatchResult(domain, status, List.of(), attempts, elapsedMillis);
+    }
+
+    private void writeResult(Writer output, BatchResult result) throws IOException {
+        if (format == OutputFormat.CSV) {
+            output.write(csv(result.domain()));
+            output.write(',');
+            output.write(result.status());
+            output.write(',');
+            output.write(csv(String.join(" ", result.addresses())));
+            output.write(',');
+            output.write(Integer.toString(result.attempts()));
+            output.write(',');
+            output.write(Long.toString(result.elapsedMillis()));
+        } else {
+            output.write("{\"domain\":");
+            output.write(json(result.domain()));
+            output.write(",\"status\":\"");
+            output.write(result.status());
+            output.write("\",\"addresses\":[");
+            for (int i = 0; i < result.addresses().size(); i++) {
+                if (i > 0) {
+                    output.write(',');
+                }
+                output.write(json(result.addresses().get(i)));
+            }
+            output.write("],\"attempts\":");
+            output.write(Integer.toString(result.attempts()));
+            output.write(",\"elapsedMs\":");
+            output.write(Long.toString(result.elapsedMillis()));
+            output.write('}');
+        }
+        output.write('\n');
+    }
+
+    // CSV字段：包含逗号、引号或换行时加引号
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // JSON字符串
+    private static String json(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    // 命令行入口：DNSBatchResolver [--servers IP[:端口],...] [--concurrency N] [--retries N] [--timeout 毫秒] [--udp-payload 字节]
+    //            [--type 记录类型] [--rate 每秒查询数] [--format csv|ndjson] [文件|-]
+    // 例如反向解析整个地址块：echo 192.0.2.0/24 | DNSBatchResolver --type PTR --rate 2000
+    public static void main(String[] args) throws Exception {
+        String servers = "8.8.8.8";
+        int concurrency = 256;
+        int retries = 2;
+        long timeoutMillis = 2000;
+        int udpPayloadSize = DNSPacket.DEFAULT_UDP_PAYLOAD_SIZE;
+        OutputFormat format = OutputFormat.CSV;
+        short type = DNSRecordType.A;
+        double rate = 0;
+        String inputFile = "-";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--servers" -> servers = args[++i];
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--retries" -> retries = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--udp-payload" -> udpPayloadSize = Integer.parseInt(args[++i]);
+                case "--type" -> type = DNSRecordType.parse(args[++i]);
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
+                case "--format" -> format = OutputFormat.valueOf(args[++i].toUpperCase());
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("未知参数: " + args[i]);
+                    }
+                    inputFile = args[i];
+                }
+            }
+        }
+
+        // 结果独占标准输出；各组件的诊断信息（如格式错误的应答）改写到标准错误，不会混入CSV/NDJSON
+        PrintStream results = System.out;
+        System.setOut(System.err);
+
+        try (DNSQueryEngine engine = new DNSQueryEngine(timeoutMillis, udpPayloadSize);
+             BufferedReader input = "-".equals(inputFile)
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8);
+             Writer output = new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8), 1 << 16)) {
+
+            DNSClient client = new DNSClient(engine, new DNSCache(100000), DNSUpstreamPool.parse(servers));
+            DNSBatchResolver batch = new DNSBatchResolver(client, concurrency, retries, format, type, rate);
+
+            long start = System.nanoTime();
+            long count = batch.resolveAll(input, output);
+            System.err.printf("已解析 %d 个域名，用时 %.1f 秒%n", count, (System.nanoTime() - start) / 1e9);
+            System.err.print(new DNSMetrics(client).getDump());
+        }
+    }
+}
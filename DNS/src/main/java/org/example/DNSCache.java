@@ -0,0 +1,197 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// 进程内DNS应答缓存：按(域名, 类型, 类别)缓存，遵循记录TTL，
+// 否定应答（NXDOMAIN/NODATA）按SOA的MINIMUM缓存，超出容量时按LRU淘汰；
+// 可挂接上次运行保存的快照，未命中时从快照中按需取回仍未过期的条目
+class DNSCache {
+    private static final int MAX_TTL_SECONDS = 86400;// TTL上限，避免异常的超长TTL
+    private static final int PREFETCH_MIN_HITS = 3;// 命中次数达到该值才视为热门条目
+    private static final int PREFETCH_PERCENT = 10;// 剩余TTL低于原TTL的该百分比时触发预取
+
+    private final int maxEntries;// 最大缓存条目数
+    private final LongSupplier clock;// 时钟（毫秒）
+    private final LinkedHashMap<Key, Entry> entries;// 按访问顺序排列，最久未使用的在最前
+    private long hits;// 命中次数
+    private long misses;// 未命中次数
+    private DNSCacheSnapshot snapshot;// 启动时加载的快照，为null表示没有
+
+    // 缓存键：域名统一为小写且去掉末尾的点
+    record Key(String name, short type, short queryClass) {
+        static Key of(String domain, short type, short queryClass) {
+            String name = domain.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            return new Key(name, type, queryClass);
+        }
+    }
+
+    // 导出或从快照恢复的条目
+    record Stored(Key key, DNSResponse response, long storedAt, long expiresAt) {
+    }
+
+    // 缓存条目
+    private static final class Entry {
+        final DNSResponse response;
+        final long storedAt;// 写入时间（毫秒）
+        final long expiresAt;// 过期时间（毫秒）
+        int hitCount;// 命中次数
+        boolean prefetching;// 是否已触发预取
+
+        Entry(DNSResponse response, long storedAt, long expiresAt) {
+            this.response = response;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    //方法
+    public DNSCache(int maxEntries) {
+        this(maxEntries, System::currentTimeMillis);
+    }
+
+    public DNSCache(int maxEntries, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > DNSCache.this.maxEntries;
+            }
+        };
+    }
+
+    // 查询缓存，未命中或已过期时返回null
+    public DNSResponse get(Key key) {
+        return get(key, null);
+    }
+
+    // 查询缓存；热门条目临近过期时调用prefetcher提前刷新（每个条目只触发一次）
+    public synchronized DNSResponse get(Key key, Consumer<Key> prefetcher) {
+        Entry entry = entries.get(key);
+        long now = clock.getAsLong();
+        if (entry == null && snapshot != null) {
+            entry = restore(snapshot.take(key, now));
+            if (snapshot.size() == 0) {
+                snapshot = null;// 全部取回后释放快照的内容
+            }
+        }
+        if (entry == null || now >= entry.expiresAt) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+
+        hits++;
+        entry.hitCount++;
+        if (prefetcher != null && !entry.prefetching && entry.hitCount >= PREFETCH_MIN_HITS
+                && (entry.expiresAt - now) * 100 < (entry.expiresAt - entry.storedAt) * PREFETCH_PERCENT) {
+            entry.prefetching = true;
+            prefetcher.accept(key);
+        }
+        return entry.response;
+    }
+
+    // 按响应的TTL写入缓存，不可缓存的响应（TTL为0、SERVFAIL等）直接忽略
+    public void put(Key key, DNSResponse response) {
+        int ttl = cacheTtl(response);
+        if (ttl <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        synchronized (this) {
+            entries.put(key, new Entry(response, now, now + Math.min(ttl, MAX_TTL_SECONDS) * 1000L));
+        }
+    }
+
+    // 把快照中取回的条目放回缓存，保留原来的写入和过期时间
+    private Entry restore(Stored stored) {
+        if (stored == null) {
+            return null;
+        }
+        Entry entry = new Entry(stored.response(), stored.storedAt(), stored.expiresAt());
+        entries.put(stored.key(), entry);
+        return entry;
+    }
+
+    // 挂接上次运行保存的快照
+    public synchronized void setSnapshot(DNSCacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    // 导出所有未过期的条目（最久未使用的在前），快照中尚未取回的条目一并导出，以免连续重启后丢失
+    public List<Stored> export() {
+        List<Stored> result;
+        DNSCacheSnapshot pending;
+        long now = clock.getAsLong();
+        synchronized (this) {
+            result = new ArrayList<>(entries.size());
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (value.expiresAt > now) {
+                    result.add(new Stored(entry.getKey(), value.response, value.storedAt, value.expiresAt));
+                }
+            }
+            pending = snapshot;
+        }
+        if (pending != null) {
+            List<Stored> remaining = pending.remaining(now);
+            if (remaining.isEmpty()) {
+                synchronized (this) {
+                    if (snapshot == pending && pending.size() == 0) {
+                        snapshot = null;// 剩余条目都已过期，释放快照的内容
+                    }
+                }
+            }
+            remaining.addAll(result);
+            result = remaining;
+        }
+        return result;
+    }
+
+    // 是否还挂接着未取完的快照
+    public synchronized boolean hasSnapshot() {
+        return snapshot != null;
+    }
+
+    // 计算响应可缓存的秒数：正常应答取最小TTL，否定应答取SOA的MINIMUM；截断的应答不缓存
+    static int cacheTtl(DNSResponse response) {
+        if (response.isTruncated()) {
+            return -1;
+        }
+        int responseCode = response.getResponseCode();
+        if (responseCode == 0 && response.getAnswerCount() > 0) {
+            return response.getMinTtl();
+        }
+        if (responseCode == 0 || responseCode == 3) { // NODATA 或 NXDOMAIN
+            return response.getNegativeTtl();
+        }
+        return -1;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {// 当前条目数（含尚未清理的过期条目）
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
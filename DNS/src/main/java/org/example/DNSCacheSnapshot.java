@@ -0,0 +1,196 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 缓存快照：把缓存条目以紧凑的二进制格式保存到文件，重启后一次性读入内存并立即关闭文件，
+// 启动时只扫描一遍建立 键 -> 偏移量 的索引（跳过已过期的条目），条目在首次被查询时才解码；
+// 全部条目都已取回或过期后，缓存释放快照（连同读入的文件内容）。
+// 文件格式：魔数"DNSC"、版本(2字节)、条目数(4字节)，之后每个条目为
+// 域名长度(2字节)、域名(ISO-8859-1)、类型(2)、类别(2)、写入时间(8)、过期时间(8)、收到时间(8)、报文长度(4)、报文
+final class DNSCacheSnapshot {
+    private static final int MAGIC = 0x444E5343;// "DNSC"
+    private static final short VERSION = 1;// 格式版本
+
+    private final ByteBuffer buffer;// 快照文件的内容
+    private final Map<DNSCache.Key, Integer> index;// 尚未取回的条目：键 -> 条目中写入时间字段的偏移量
+
+    private DNSCacheSnapshot(ByteBuffer buffer, Map<DNSCache.Key, Integer> index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    //方法
+    // 读入快照文件并建立索引；文件不存在时返回null，格式不符时忽略整个文件
+    static DNSCacheSnapshot open(Path file, long nowMillis) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("快照文件过大: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止（读取过程中文件被截断时按不完整的快照处理）
+            }
+            buffer.flip();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        Map<DNSCache.Key, Integer> index = new HashMap<>();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                System.out.println("忽略格式不符的缓存快照：" + file);
+                return new DNSCacheSnapshot(buffer, index);
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                short type = buffer.getShort();
+                short queryClass = buffer.getShort();
+                int timesOffset = buffer.position();
+                long expiresAt = buffer.getLong(timesOffset + 8);
+                int dataLength = buffer.getInt(timesOffset + 24);
+                if (dataLength < 0 || dataLength > buffer.limit() - timesOffset - 28) {
+                    throw new BufferUnderflowException();
+                }
+                buffer.position(timesOffset + 28 + dataLength);
+                DNSCache.Key key = new DNSCache.Key(new String(name, StandardCharsets.ISO_8859_1), type, queryClass);
+                if (expiresAt > nowMillis) {
+                    index.put(key, timesOffset);// 同一个键出现多次时以后写入的为准
+                } else {
+                    index.remove(key);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.out.println("缓存快照不完整，只加载了前 " + index.size() + " 个条目：" + file);
+        }
+        return new DNSCacheSnapshot(buffer, index);
+    }
+
+    // 尚未取回的条目数
+    synchronized int size() {
+        return index.size();
+    }
+
+    // 取回一个条目（每个条目只取回一次），不存在或已过期时返回null
+    synchronized DNSCache.Stored take(DNSCache.Key key, long nowMillis) {
+        Integer offset = index.remove(key);
+        if (offset == null) {
+            return null;
+        }
+        DNSCache.Stored stored = read(key, offset);
+        return stored.expiresAt() > nowMillis ? stored : null;
+    }
+
+    // 全部尚未取回且未过期的条目，已过期的条目同时移出索引
+    synchronized List<DNSCache.Stored> remaining(long nowMillis) {
+        List<DNSCache.Stored> result = new ArrayList<>(index.size());
+        Iterator<Map.Entry<DNSCache.Key, Integer>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<DNSCache.Key, Integer> entry = entries.next();
+            if (buffer.getLong(entry.getValue() + 8) > nowMillis) {
+                result.add(read(entry.getKey(), entry.getValue()));
+            } else {
+                entries.remove();
+            }
+        }
+        return result;
+    }
+
+    private DNSCache.Stored read(DNSCache.Key key, int offset) {
+        long storedAt = buffer.getLong(offset);
+        long expiresAt = buffer.getLong(offset + 8);
+        long receivedAt = buffer.getLong(offset + 16);
+        byte[] data = new byte[buffer.getInt(offset + 24)];
+        buffer.get(offset + 28, data);
+        return new DNSCache.Stored(key, new DNSResponse(data, receivedAt), storedAt, expiresAt);
+    }
+
+    // 保存缓存中所有未过期的条目：先写临时文件再原子替换，写入过程中崩溃不会破坏旧快照
+    static int write(DNSCache cache, Path file) throws IOException {
+        List<DNSCache.Stored> entries = cache.export();
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(entries.size());
+                for (DNSCache.Stored entry : entries) {
+                    byte[] name = entry.key().name().getBytes(StandardCharsets.ISO_8859_1);
+                    byte[] data = entry.response().getData();
+                    out.writeShort(name.length);
+                    out.write(name);
+                    out.writeShort(entry.key().type());
+                    out.writeShort(entry.key().queryClass());
+                    out.writeLong(entry.storedAt());
+                    out.writeLong(entry.expiresAt());
+                    out.writeLong(entry.response().getReceivedAtMillis());
+                    out.writeInt(data.length);
+                    out.write(data);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return entries.size();
+    }
+
+    // 加载快照（如果存在）并挂接到缓存，之后定期保存，进程退出时再保存一次；关闭返回值时停止定期保存并立即保存
+    static Closeable persist(DNSCache cache, Path file, long periodSeconds) {
+        try {
+            cache.setSnapshot(open(file, System.currentTimeMillis()));
+        } catch (IOException e) {
+            System.out.println("加载缓存快照时发生错误：" + e.getMessage());
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dns-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable save = () -> {
+            try {
+                write(cache, file);
+            } catch (IOException e) {
+                System.out.println("保存缓存快照时发生错误：" + e.getMessage());
+            }
+        };
+        scheduler.scheduleWithFixedDelay(save, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        Thread shutdownHook = new Thread(save, "dns-cache-snapshot-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        return () -> {
+            scheduler.shutdownNow();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                return;// 正在退出，由关闭钩子保存
+            }
+            save.run();
+        };
+    }
+}
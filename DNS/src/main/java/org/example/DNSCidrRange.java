@@ -0,0 +1,99 @@
+package org.example;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// CIDR地址块（如 10.0.0.0/16、2001:db8::/120），按顺序逐个生成其中的地址，不预先展开
+final class DNSCidrRange implements Iterable<String> {
+    private static final int MAX_HOST_BITS = 32;// 单个地址块最多展开2^32个地址
+
+    private final byte[] network;// 网络地址（主机位已清零）
+    private final long size;// 地址数
+
+    private DNSCidrRange(byte[] network, long size) {
+        this.network = network;
+        this.size = size;
+    }
+
+    //方法
+    // 解析"地址/前缀长度"，不写前缀长度时表示单个地址
+    static DNSCidrRange parse(String cidr) {
+        String text = cidr.trim();
+        int slash = text.indexOf('/');
+        String addressText = slash < 0 ? text : text.substring(0, slash);
+        if (!DNSRecordType.isAddressLiteral(addressText)) {
+            throw new IllegalArgumentException("不是IP地址: " + cidr);
+        }
+        byte[] address;
+        try {
+            address = InetAddress.getByName(addressText).getAddress();// 字面量不会触发域名解析
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("不是IP地址: " + cidr, e);
+        }
+
+        int bits = address.length * 8;
+        int prefix;
+        try {
+            prefix = slash < 0 ? bits : Integer.parseInt(text.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("前缀长度无效: " + cidr, e);
+        }
+        if (prefix < 0 || prefix > bits) {
+            throw new IllegalArgumentException("前缀长度应在0~" + bits + "之间: " + cidr);
+        }
+        int hostBits = bits - prefix;
+        if (hostBits > MAX_HOST_BITS) {
+            throw new IllegalArgumentException("地址块过大（最多2^" + MAX_HOST_BITS + "个地址）: " + cidr);
+        }
+
+        for (int i = 0; i < address.length; i++) {// 清零主机位
+            int keep = Math.max(0, Math.min(8, prefix - i * 8));
+            address[i] &= (byte) (0xFF << (8 - keep));
+        }
+        return new DNSCidrRange(address, 1L << hostBits);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // 按顺序生成地址的文本形式
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private final byte[] current = network.clone();
+            private long produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < size;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String address = format(current);
+                produced++;
+                for (int i = current.length - 1; i >= 0 && ++current[i] == 0; i--) {
+                    // 进位
+                }
+                return address;
+            }
+        };
+    }
+
+    private static String format(byte[] address) {
+        if (address.length == 4) {
+            return (address[0] & 0xFF) + "." + (address[1] & 0xFF) + "." + (address[2] & 0xFF) + "." + (address[3] & 0xFF);
+        }
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);// 长度固定为16字节，不会发生
+        }
+    }
+}
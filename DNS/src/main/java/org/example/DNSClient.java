@@ -0,0 +1,268 @@
+package org.example;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// 无界面的DNS客户端：先查缓存，未命中时通过查询引擎发往最快的健康上游服务器，
+// 在该上游的尾部时延阈值内未收到应答时向下一个上游发送对冲查询，先到的应答写回缓存；
+// UDP应答被截断时改用TCP持久连接向同一上游重新查询；相同问题的并发查询共享同一次上游查询
+class DNSClient {
+    private static final short CLASS_IN = 1;// IN类别
+    private static final int MAX_CNAME_QUERIES = 8;// 应答未包含CNAME目标的记录时，最多追加查询的次数
+
+    private final DNSQueryEngine engine;// 共享的查询引擎
+    private final DNSCache cache;// 应答缓存
+    private final DNSUpstreamPool upstreams;// 上游DNS服务器列表
+    private final DNSTcpTransport tcp;// 截断应答的TCP回退通道
+    private final ConcurrentHashMap<DNSCache.Key, CompletableFuture<DNSResponse>> inFlight;// 正在向上游查询的问题
+    private final LongAdder lookups = new LongAdder();// 解析请求数
+    private final LongAdder coalesced = new LongAdder();// 与在途查询合并的解析请求数
+    private final LongAdder hedgedQueries = new LongAdder();// 对冲或失败转移时额外发出的查询数
+    private final LongAdder tcpFallbacks = new LongAdder();// 截断后改用TCP的查询数
+
+    //方法
+    public DNSClient(DNSQueryEngine engine, DNSCache cache, InetSocketAddress server) {
+        this(engine, cache, new DNSUpstreamPool(List.of(server)));
+    }
+
+    public DNSClient(DNSQueryEngine engine, DNSCache cache, DNSUpstreamPool upstreams) {
+        this(engine, new DNSTcpTransport(engine.getTimeoutMillis()), cache, upstreams);
+    }
+
+    public DNSClient(DNSQueryEngine engine, DNSTcpTransport tcp, DNSCache cache, DNSUpstreamPool upstreams) {
+        this.engine = engine;
+        this.tcp = tcp;
+        this.cache = cache;
+        this.upstreams = upstreams;
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    // 解析域名的A记录，缓存命中时直接返回已完成的Future
+    public CompletableFuture<DNSResponse> resolve(String domain) {
+        return resolve(domain, DNSRecordType.A);
+    }
+
+    // 解析域名的指定类型记录
+    public CompletableFuture<DNSResponse> resolve(String domain, short type) {
+        lookups.increment();
+        DNSCache.Key key = DNSCache.Key.of(domain, type, CLASS_IN);
+        DNSResponse cached = cache.get(key, this::prefetch);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return fetch(key);
+    }
+
+    // 解析域名的指定类型记录并跟随CNAME：上游已在应答中给出CNAME目标的记录时直接使用，
+    // 只有链的终点没有所需类型的记录时才向上游查询CNAME目标；返回最后一次查询的应答
+    public CompletableFuture<DNSResponse> resolveFollowingCnames(String domain, short type) {
+        return followCnames(resolve(domain, type), type, 0);
+    }
+
+    private CompletableFuture<DNSResponse> followCnames(CompletableFuture<DNSResponse> lookup, short type, int queries) {
+        return lookup.thenCompose(response -> {
+            if (type == DNSRecordType.CNAME || response.getResponseCode() != 0 || queries >= MAX_CNAME_QUERIES
+                    || !response.getAnswerData(type).isEmpty()) {
+                return CompletableFuture.completedFuture(response);
+            }
+            String canonicalName = response.getCanonicalName();
+            if (canonicalName == null || canonicalName.equalsIgnoreCase(response.getQuestionName())) {
+                return CompletableFuture.completedFuture(response);// 没有CNAME，确实不存在该类型的记录
+            }
+            return followCnames(resolve(canonicalName, type), type, queries + 1);
+        });
+    }
+
+    // 双栈查询：同时发出A和AAAA查询，返回先到的含地址的应答；两者都没有地址时返回A查询的应答（A失败时取AAAA）
+    public CompletableFuture<DNSResponse> resolveDualStack(String domain) {
+        List<CompletableFuture<DNSResponse>> lookups = List.of(
+                resolveFollowingCnames(domain, DNSRecordType.A),
+                resolveFollowingCnames(domain, DNSRecordType.AAAA));
+        CompletableFuture<DNSResponse> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(lookups.size());
+        for (CompletableFuture<DNSResponse> lookup : lookups) {
+            lookup.whenComplete((response, error) -> {
+                if (response != null && !response.getIPAddresses().isEmpty()) {
+                    result.complete(response);
+                } else if (remaining.decrementAndGet() == 0) {
+                    // 都没有可用地址：优先返回A查询的应答（其中的响应码可说明原因），两者都失败时返回最后的错误
+                    CompletableFuture<DNSResponse> fallback = lookups.get(0).isCompletedExceptionally() ? lookups.get(1) : lookups.get(0);
+                    if (fallback.isCompletedExceptionally()) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        result.complete(fallback.join());
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    // 热门条目临近过期时在后台刷新
+    private void prefetch(DNSCache.Key key) {
+        fetch(key);
+    }
+
+    // 向上游查询并写入缓存；同一问题已有查询在途时直接共享其结果（single-flight）
+    private CompletableFuture<DNSResponse> fetch(DNSCache.Key key) {
+        CompletableFuture<DNSResponse> shared = new CompletableFuture<>();
+        CompletableFuture<DNSResponse> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        queryUpstreams(key.name(), key.type()).whenComplete((response, error) -> {
+            if (response != null) {
+                cache.put(key, response);// 先写缓存再移出在途表，之后的查询可直接命中缓存
+            }
+            inFlight.remove(key, shared);
+            if (response != null) {
+                shared.complete(response);
+            } else {
+                shared.completeExceptionally(error);
+            }
+        });
+        return shared;
+    }
+
+    // 当前正在向上游查询的不同问题数
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    // 对冲查询：先发往排名第一的上游，超过其尾部时延阈值或失败时再发往下一个
+    private CompletableFuture<DNSResponse> queryUpstreams(String name, short type) {
+        try {
+            DNSPacket.checkName(name);// 域名本身不合法是本地错误，不能计为上游失败，也不必转移或对冲
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HedgedQuery query = new HedgedQuery(name, type, upstreams.ranked(System.currentTimeMillis()));
+        query.launchNext();
+        return query.result;
+    }
+
+    // 一次对冲查询的状态
+    private final class HedgedQuery {
+        final String name;
+        final short type;
+        final List<DNSUpstream> ranked;// 按优先级排序的上游
+        final CompletableFuture<DNSResponse> result = new CompletableFuture<>();
+        final AtomicInteger next = new AtomicInteger();// 下一个要发送的上游序号
+        final AtomicInteger outstanding = new AtomicInteger();// 尚未结束的尝试数
+        volatile Throwable lastError;// 最近一次失败的原因
+        volatile DNSResponse lastErrorReply;// 最近一次SERVFAIL/NOTIMP/REFUSED应答，所有上游都失败时返回
+        volatile boolean answered;// 是否已收到应答（截断的应答在TCP重试期间不再发送对冲查询）
+
+        HedgedQuery(String name, short type, List<DNSUpstream> ranked) {
+            this.name = name;
+            this.type = type;
+            this.ranked = ranked;
+        }
+
+        // 向下一个上游发送查询（对冲计时器和失败转移可能同时触发，由next保证每个上游只发一次）
+        void launchNext() {
+            outstanding.incrementAndGet();// 先计数再领取序号，避免其他尝试误判为全部结束
+            int index = next.getAndIncrement();
+            if (answered || result.isDone() || index >= ranked.size()) {
+                finishAttempt();
+                return;
+            }
+
+            DNSUpstream upstream = ranked.get(index);
+            upstream.recordQuery();
+            if (index > 0) {
+                hedgedQueries.increment();
+            }
+            long start = System.nanoTime();
+            engine.query(name, type, upstream.getAddress()).whenComplete((response, error) -> {
+                if (response != null && isServerFailure(response)) {
+                    // 上游拒绝或无法处理，按失败计入（否则快速失败的服务器会因时延最低而排到最前），并立即转移
+                    lastErrorReply = response;
+                    upstream.recordFailure(System.currentTimeMillis(), null);
+                    launchNext();
+                } else if (response != null) {
+                    upstream.recordSuccess(System.nanoTime() - start);
+                    answered = true;
+                    if (response.isTruncated()) {
+                        // TCP查询失败时退回截断的应答
+                        tcpFallbacks.increment();
+                        tcp.query(name, type, upstream.getAddress()).whenComplete((full, tcpError) -> {
+                            result.complete(full != null ? full : response);
+                            finishAttempt();
+                        });
+                        return;
+                    }
+                    result.complete(response);
+                } else {
+                    lastError = error instanceof CompletionException ? error.getCause() : error;
+                    upstream.recordFailure(System.currentTimeMillis(), lastError);
+                    launchNext();// 失败时立即转移到下一个上游
+                }
+                finishAttempt();
+            });
+
+            if (index + 1 < ranked.size()) {
+                long delay = upstream.getHedgeDelayMillis(engine.getTimeoutMillis());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::launchNext);
+            }
+        }
+
+        // 一次尝试结束；所有尝试都结束仍无应答时返回最后的错误应答，没有错误应答时以最后的错误结束
+        void finishAttempt() {
+            if (outstanding.decrementAndGet() == 0) {
+                if (lastErrorReply != null) {
+                    result.complete(lastErrorReply);
+                } else {
+                    result.completeExceptionally(lastError != null ? lastError : new TimeoutException());
+                }
+            }
+        }
+    }
+
+    // SERVFAIL(2)、NOTIMP(4)、REFUSED(5)表示该上游无法给出答案，换一个上游可能成功
+    private static boolean isServerFailure(DNSResponse response) {
+        int responseCode = response.getResponseCode();
+        return responseCode == 2 || responseCode == 4 || responseCode == 5;
+    }
+
+    public long getLookups() {// 解析请求数（含缓存命中）
+        return lookups.sum();
+    }
+
+    public long getCoalescedLookups() {// 与在途查询合并的解析请求数
+        return coalesced.sum();
+    }
+
+    public long getHedgedQueries() {// 对冲或失败转移时额外发出的查询数
+        return hedgedQueries.sum();
+    }
+
+    public long getTcpFallbacks() {// 截断后改用TCP的查询数
+        return tcpFallbacks.sum();
+    }
+
+    public DNSQueryEngine getEngine() {// 获取查询引擎
+        return engine;
+    }
+
+    public DNSCache getCache() {// 获取应答缓存
+        return cache;
+    }
+
+    public DNSUpstreamPool getUpstreams() {// 获取上游服务器列表
+        return upstreams;
+    }
+
+    public DNSTcpTransport getTcpTransport() {// 获取TCP回退通道
+        return tcp;
+    }
+}
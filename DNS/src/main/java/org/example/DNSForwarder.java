@@ -0,0 +1,309 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 本地缓存转发服务器：在指定端口上同时提供UDP和TCP服务，先查缓存，未命中时经DNSClient转发到上游；
+// 相同问题的并发查询由DNSClient合并为一次上游查询。UDP由单个接收线程异步处理，TCP每个连接一个虚拟线程
+public class DNSForwarder implements Closeable {
+    private static final int MAX_UDP_QUERY_SIZE = 4096;// 接收客户端UDP查询的缓冲区大小
+    private static final int DEFAULT_CLIENT_PAYLOAD = 512;// 客户端未携带OPT记录时的UDP应答上限
+    private static final int MAX_BIND_ATTEMPTS = 10;// 随机端口时绑定TCP失败的最大重试次数
+
+    private final DNSClient client;// 带缓存、合并查询的DNS客户端
+    private final DatagramChannel udpChannel;// UDP监听通道
+    private final ServerSocketChannel tcpChannel;// TCP监听通道
+    private final AtomicLong queryCount = new AtomicLong();// 收到的查询数
+    private final AtomicLong errorCount = new AtomicLong();// 以SERVFAIL应答的查询数
+    private volatile boolean running = true;
+
+    //方法
+    public DNSForwarder(DNSClient client, InetSocketAddress listenAddress) throws IOException {
+        this.client = client;
+        // TCP与UDP使用同一端口（监听地址端口为0时取UDP实际分配的端口；该端口的TCP已被占用时换一个端口重试）
+        DatagramChannel udp;
+        ServerSocketChannel tcp;
+        for (int attempt = 1; ; attempt++) {
+            udp = DatagramChannel.open();
+            tcp = ServerSocketChannel.open();
+            try {
+                udp.bind(listenAddress);
+                InetSocketAddress bound = (InetSocketAddress) udp.getLocalAddress();
+                tcp.bind(new InetSocketAddress(listenAddress.getAddress(), bound.getPort()), 1024);
+                break;
+            } catch (IOException e) {
+                udp.close();
+                tcp.close();
+                if (!(e instanceof BindException) || listenAddress.getPort() != 0 || attempt >= MAX_BIND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        this.udpChannel = udp;
+        this.tcpChannel = tcp;
+    }
+
+    // 启动UDP接收线程和TCP接受线程
+    public void start() {
+        Thread udpReceiver = new Thread(this::serveUdp, "dns-forwarder-udp");
+        udpReceiver.setDaemon(true);
+        udpReceiver.start();
+        Thread.ofVirtual().name("dns-forwarder-tcp").start(this::acceptTcp);
+    }
+
+    // 实际监听的端口
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) udpChannel.getLocalAddress()).getPort();
+    }
+
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    // UDP接收循环：收到查询后异步解析，应答在查询完成的线程上直接发回
+    private void serveUdp() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_UDP_QUERY_SIZE);
+        while (running) {
+            try {
+                buffer.clear();
+                SocketAddress source = udpChannel.receive(buffer);
+                buffer.flip();
+                if (buffer.remaining() < DNSPacket.HEADER_SIZE) {
+                    continue;// 连头部都不完整的报文无法应答，直接丢弃
+                }
+                byte[] queryData = new byte[buffer.remaining()];
+                buffer.get(queryData);
+
+                handle(queryData).thenAccept(reply -> {
+                    try {
+                        udpChannel.send(ByteBuffer.wrap(fitUdp(queryData, reply)), source);
+                    } catch (IOException e) {
+                        // 客户端不可达或服务器已关闭，丢弃应答
+                    }
+                });
+            } catch (AsynchronousCloseException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("接收DNS查询时发生错误：" + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                // 单个报文处理出错只丢弃该报文，不能结束接收线程
+            }
+        }
+    }
+
+    // TCP接受循环：每个连接一个虚拟线程
+    private void acceptTcp() {
+        while (running) {
+            try {
+                SocketChannel connection = tcpChannel.accept();
+                Thread.ofVirtual().name("dns-forwarder-tcp-connection").start(() -> serveTcp(connection));
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("接受TCP连接时发生错误：" + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    // 处理一个TCP连接：依次读取带长度前缀的查询，应答完成后按完成顺序写回（允许流水线）；
+    // 客户端发完查询后半关闭连接时，等已收到的查询全部应答后再关闭
+    private void serveTcp(SocketChannel connection) {
+        ReentrantLock writeLock = new ReentrantLock();
+        Set<CompletableFuture<Void>> outstanding = ConcurrentHashMap.newKeySet();// 尚未写回应答的查询
+        try (connection) {
+            try {
+                readTcpQueries(connection, writeLock, outstanding);
+            } catch (IOException e) {
+                // 客户端关闭或半关闭连接
+            }
+            CompletableFuture.allOf(outstanding.toArray(new CompletableFuture<?>[0])).handle((done, error) -> null).join();
+        } catch (IOException e) {
+            // 关闭连接时的错误
+        }
+    }
+
+    private void readTcpQueries(SocketChannel connection, ReentrantLock writeLock,
+                                Set<CompletableFuture<Void>> outstanding) throws IOException {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(2);
+        while (running) {
+            lengthBuffer.clear();
+            readFully(connection, lengthBuffer);
+            ByteBuffer message = ByteBuffer.allocate(lengthBuffer.getShort(0) & 0xFFFF);
+            readFully(connection, message);
+            if (message.capacity() < DNSPacket.HEADER_SIZE) {
+                return;// 不完整的报文，不再读取
+            }
+
+            CompletableFuture<byte[]> handled;
+            try {
+                handled = handle(message.array());
+            } catch (RuntimeException e) {
+                continue;// 单个报文处理出错只丢弃该报文，继续读取后续查询
+            }
+            CompletableFuture<Void> written = handled.thenAccept(reply -> {
+                ByteBuffer out = ByteBuffer.allocate(2 + reply.length);
+                out.putShort((short) reply.length).put(reply).flip();
+                writeLock.lock();
+                try {
+                    while (out.hasRemaining()) {
+                        connection.write(out);
+                    }
+                } catch (IOException e) {
+                    // 客户端已断开
+                } finally {
+                    writeLock.unlock();
+                }
+            });
+            outstanding.add(written);
+            written.whenComplete((done, error) -> outstanding.remove(written));
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    // 处理一条查询（至少包含完整头部），返回应答报文；无法转发时以SERVFAIL应答，格式错误时以FORMERR应答
+    CompletableFuture<byte[]> handle(byte[] queryData) {
+        queryCount.incrementAndGet();
+        DNSResponse query = new DNSResponse(queryData);
+        int opcode = (query.getFlags() >> 11) & 0x0F;
+        if ((query.getFlags() & 0x8000) != 0 || query.getQuestionCount() != 1 || query.getQuestionEnd() < 0) {
+            return CompletableFuture.completedFuture(errorReply(query, 1));// FORMERR
+        }
+        String name;
+        short type;
+        int queryClass;
+        try {
+            name = query.getQuestionName();
+            type = (short) query.getQuestionType();
+            queryClass = query.getQuestionClass();
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(errorReply(query, 1));// FORMERR：问题域名无法解码（如压缩指针循环）
+        }
+        if (opcode != 0 || queryClass != 1) {
+            // 只支持IN类别：客户端对上游的查询和缓存键都按IN处理，CH、HS、ANY等类别不能转发
+            return CompletableFuture.completedFuture(errorReply(query, 4));// NOTIMP
+        }
+
+        return client.resolve(name, type).handle((response, error) -> {
+            if (response == null) {
+                errorCount.incrementAndGet();
+                return errorReply(query, 2);// SERVFAIL
+            }
+            return withClientQuestion(query, response, response.toWire(query.getTransactionId(), System.currentTimeMillis()));
+        });
+    }
+
+    // 缓存键和上游查询用的是小写域名，应答的问题部分换回客户端查询中的原样字节，
+    // 否则使用0x20大小写随机化的下游解析器会把应答当作伪造的而丢弃
+    private static byte[] withClientQuestion(DNSResponse query, DNSResponse response, byte[] reply) {
+        int questionEnd = query.getQuestionEnd();
+        if (response.getQuestionEnd() == questionEnd) {// 同一问题只有大小写不同，长度必然一致
+            System.arraycopy(query.getData(), DNSPacket.HEADER_SIZE, reply, DNSPacket.HEADER_SIZE,
+                    questionEnd - DNSPacket.HEADER_SIZE);
+        }
+        return reply;
+    }
+
+    // 用查询的头部和问题部分构造一个不含记录的应答
+    private static byte[] errorReply(DNSResponse query, int responseCode) {
+        return emptyReply(query, responseCode, false);
+    }
+
+    private static byte[] emptyReply(DNSResponse query, int responseCode, boolean truncated) {
+        int length = Math.max(query.getQuestionEnd(), DNSPacket.HEADER_SIZE);
+        byte[] reply = new byte[length];
+        System.arraycopy(query.getData(), 0, reply, 0, length);
+        int flags = 0x8000 | (query.getFlags() & 0x7900) | 0x0080 | responseCode;// QR、原opcode和RD、RA
+        if (truncated) {
+            flags |= 0x0200;
+        }
+        reply[2] = (byte) (flags >>> 8);
+        reply[3] = (byte) flags;
+        if (query.getQuestionEnd() < 0) {
+            reply[4] = 0;
+            reply[5] = 0;
+        }
+        for (int i = 6; i < DNSPacket.HEADER_SIZE; i++) {
+            reply[i] = 0;// 回答、授权、附加记录数均为0
+        }
+        return reply;
+    }
+
+    // UDP应答超过客户端可接收的大小时，改为带TC标志的空应答，由客户端改用TCP重查
+    private static byte[] fitUdp(byte[] queryData, byte[] reply) {
+        DNSResponse query = new DNSResponse(queryData);
+        int limit = DEFAULT_CLIENT_PAYLOAD;
+        for (int i = query.getSectionStart(DNSResponse.SECTION_ADDITIONAL); i < query.getSectionEnd(DNSResponse.SECTION_ADDITIONAL); i++) {
+            if (query.getRecordType(i) == DNSRecordType.OPT) {
+                limit = Math.max(DEFAULT_CLIENT_PAYLOAD, query.getRecordClass(i));
+            }
+        }
+        return reply.length <= limit ? reply : emptyReply(query, 0, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        udpChannel.close();
+        tcpChannel.close();
+    }
+
+    // 命令行入口：DNSForwarder [--port 端口] [--servers IP[:端口],...] [--cache 条目数] [--cache-file 快照文件] [--timeout 毫秒]
+    public static void main(String[] args) throws Exception {
+        int port = 5353;
+        String servers = "8.8.8.8,114.114.114.114";
+        int cacheSize = 100000;
+        long timeoutMillis = 2000;
+        String cacheFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--servers" -> servers = args[++i];
+                case "--cache" -> cacheSize = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeoutMillis = Long.parseLong(args[++i]);
+                case "--cache-file" -> cacheFile = args[++i];
+                default -> throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        DNSQueryEngine engine = new DNSQueryEngine(timeoutMillis);
+        DNSCache cache = new DNSCache(cacheSize);
+        if (cacheFile != null) {
+            DNSCacheSnapshot.persist(cache, Paths.get(cacheFile), 60);// 重启后从快照恢复，避免冷缓存时集中查询上游
+        }
+        DNSClient client = new DNSClient(engine, cache, DNSUpstreamPool.parse(servers));
+        DNSForwarder forwarder = new DNSForwarder(client, new InetSocketAddress(port));
+        new DNSMetrics(client).register("DNSForwarder");// 通过JMX查看时延分布、命中率等指标
+        forwarder.start();
+        System.out.println("DNS转发服务器已启动，端口 " + forwarder.getLocalPort() + "，上游 " + servers);
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// 时延直方图：按微秒计数，每个2的幂区间再等分为8个桶（相对误差不超过12.5%），
+// 记录时只做一次原子加，不加锁，可在查询完成的回调中直接调用
+class DNSLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;// 每个2的幂区间的子桶数为2^3
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 256;// 可覆盖约2^33微秒，超出的样本计入最后一个桶
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);// 各桶的样本数
+    private final LongAdder count = new LongAdder();// 样本总数
+    private final LongAdder totalMicros = new LongAdder();// 样本总和（微秒）
+
+    //方法
+    // 记录一个样本（纳秒）
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    // 平均值（毫秒），没有样本时为0
+    public double getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalMicros.sum() / 1000.0 / samples;
+    }
+
+    // 百分位数（毫秒，取所在桶的上界），percentile取0~100；没有样本时为0
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long samples = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            samples += snapshot[i];
+        }
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(samples * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return (lowerBound(i + 1) - 1) / 1000.0;
+            }
+        }
+        return (lowerBound(BUCKET_COUNT) - 1) / 1000.0;
+    }
+
+    // 样本所在的桶：小于8微秒时每微秒一个桶，之后按最高位所在区间和其后3位定位
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket, BUCKET_COUNT - 1);
+    }
+
+    // 桶的下界（微秒）
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// 解析器指标汇总：各组件自行维护计数，这里只在读取时汇总，
+// 并提供JMX注册（org.example.dns域）、完整的文本输出和界面状态栏用的简要摘要
+class DNSMetrics implements DNSMetricsMBean {
+    static final String JMX_DOMAIN = "org.example.dns";// JMX对象名的域
+
+    private final DNSClient client;// 被统计的客户端
+    private final List<ObjectName> registered = new ArrayList<>();// 已注册的MBean
+
+    //方法
+    public DNSMetrics(DNSClient client) {
+        this.client = client;
+    }
+
+    // 以指定名称注册解析器和各上游的MBean
+    public synchronized void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName resolver = new ObjectName(JMX_DOMAIN + ":type=Resolver,name=" + ObjectName.quote(name));
+        server.registerMBean(this, resolver);
+        registered.add(resolver);
+        for (DNSUpstream upstream : client.getUpstreams().getUpstreams()) {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Upstream,resolver=" + ObjectName.quote(name)
+                    + ",server=" + ObjectName.quote(upstream.toString()));
+            server.registerMBean(upstream, objectName);
+            registered.add(objectName);
+        }
+    }
+
+    // 注销已注册的MBean
+    public synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // 已被注销
+            }
+        }
+        registered.clear();
+    }
+
+    @Override
+    public long getLookups() {
+        return client.getLookups();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return client.getCache().getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return client.getCache().getMisses();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getCacheSize() {
+        return client.getCache().size();
+    }
+
+    @Override
+    public long getCoalescedLookups() {
+        return client.getCoalescedLookups();
+    }
+
+    @Override
+    public int getInFlight() {
+        return client.getInFlightCount();
+    }
+
+    @Override
+    public long getUdpQueries() {
+        return client.getEngine().getQueriesSent();
+    }
+
+    @Override
+    public long getTimeouts() {
+        long timeouts = 0;
+        for (DNSUpstream upstream : client.getUpstreams().getUpstreams()) {
+            timeouts += upstream.getTimeouts();
+        }
+        return timeouts;
+    }
+
+    @Override
+    public long getHedgedQueries() {
+        return client.getHedgedQueries();
+    }
+
+    @Override
+    public long getTcpFallbacks() {
+        return client.getTcpFallbacks();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return client.getEngine().getBytesSent() + client.getTcpTransport().getBytesSent();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return client.getEngine().getBytesReceived() + client.getTcpTransport().getBytesReceived();
+    }
+
+    // 全部指标，每行一项，上游按配置顺序列出
+    @Override
+    public String getDump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append("lookups ").append(getLookups()).append('\n');
+        dump.append("cache.hits ").append(getCacheHits()).append('\n');
+        dump.append("cache.misses ").append(getCacheMisses()).append('\n');
+        dump.append("cache.hit_ratio ").append(format(getCacheHitRatio())).append('\n');
+        dump.append("cache.size ").append(getCacheSize()).append('\n');
+        dump.append("coalesced ").append(getCoalescedLookups()).append('\n');
+        dump.append("in_flight ").append(getInFlight()).append('\n');
+        dump.append("udp.queries ").append(getUdpQueries()).append('\n');
+        dump.append("udp.timeouts ").append(getTimeouts()).append('\n');
+        dump.append("hedged ").append(getHedgedQueries()).append('\n');
+        dump.append("tcp.fallbacks ").append(getTcpFallbacks()).append('\n');
+        dump.append("tcp.queries ").append(client.getTcpTransport().getQueriesSent()).append('\n');
+        dump.append("bytes.sent ").append(getBytesSent()).append('\n');
+        dump.append("bytes.received ").append(getBytesReceived()).append('\n');
+        for (DNSUpstream upstream : client.getUpstreams().getUpstreams()) {
+            String prefix = "upstream." + upstream + ".";
+            dump.append(prefix).append("queries ").append(upstream.getQueries()).append('\n');
+            dump.append(prefix).append("failures ").append(upstream.getFailures()).append('\n');
+            dump.append(prefix).append("timeouts ").append(upstream.getTimeouts()).append('\n');
+            dump.append(prefix).append("healthy ").append(upstream.isHealthy()).append('\n');
+            dump.append(prefix).append("srtt_ms ").append(format(upstream.getSrttMillis())).append('\n');
+            dump.append(prefix).append("p50_ms ").append(format(upstream.getLatencyP50Millis())).append('\n');
+            dump.append(prefix).append("p95_ms ").append(format(upstream.getLatencyP95Millis())).append('\n');
+            dump.append(prefix).append("p99_ms ").append(format(upstream.getLatencyP99Millis())).append('\n');
+        }
+        return dump.toString();
+    }
+
+    // 一行摘要：请求数、命中率、超时数，以及首选上游的时延分位数
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("查询 ").append(getLookups())
+                .append(" | 命中率 ").append(String.format(Locale.ROOT, "%.1f%%", getCacheHitRatio() * 100))
+                .append(" | 超时 ").append(getTimeouts());
+        List<DNSUpstream> ranked = client.getUpstreams().ranked(System.currentTimeMillis());
+        if (!ranked.isEmpty()) {
+            DNSUpstream best = ranked.get(0);
+            summary.append(" | ").append(best).append(String.format(Locale.ROOT, " p50 %.1fms p99 %.1fms",
+                    best.getLatencyP50Millis(), best.getLatencyP99Millis()));
+        }
+        return summary.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+// 解析器整体的JMX监控接口
+public interface DNSMetricsMBean {
+    long getLookups();// 客户端收到的解析请求数
+
+    long getCacheHits();// 缓存命中数
+
+    long getCacheMisses();// 缓存未命中数
+
+    double getCacheHitRatio();// 缓存命中率（0~1）
+
+    int getCacheSize();// 缓存条目数
+
+    long getCoalescedLookups();// 与在途查询合并的解析请求数
+
+    int getInFlight();// 正在向上游查询的不同问题数
+
+    long getUdpQueries();// 发出的UDP查询数
+
+    long getTimeouts();// UDP查询超时次数（各上游合计）
+
+    long getHedgedQueries();// 对冲或失败转移时额外发出的查询数
+
+    long getTcpFallbacks();// 截断后改用TCP的查询数
+
+    long getBytesSent();// 发出的字节数（UDP和TCP）
+
+    long getBytesReceived();// 收到的字节数（UDP和TCP）
+
+    String getDump();// 全部指标的文本形式
+}
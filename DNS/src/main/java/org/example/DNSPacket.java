@@ -1,12 +1,17 @@
 package org.example;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
 
 // 创建DNS查询报文
 class DNSPacket {
+    static final int HEADER_SIZE = 12;// 报文头部长度
+    static final int MAX_LABEL_LENGTH = 63;// 单个标签的最大长度
+    static final int MAX_NAME_LENGTH = 255;// 编码后域名的最大长度
+    static final int OPT_RECORD_SIZE = 11;// EDNS0 OPT伪记录的长度（无选项）
+    static final int MAX_QUERY_SIZE = HEADER_SIZE + MAX_NAME_LENGTH + 4 + OPT_RECORD_SIZE;// 单问题查询报文的最大长度
+    static final int DEFAULT_UDP_PAYLOAD_SIZE = 1232;// 默认通告的UDP载荷大小（避免IP分片的常用取值）
+
     private final short transactionId;// 事务ID，用于匹配请求和响应
     private final short flags;// 标志字段，指示查询类型等
     private final short questions;// 问题记录数
@@ -16,55 +21,152 @@ class DNSPacket {
     private final String queryDomain; // 查询的域名
     private final short queryType;// 查询类型
     private final short queryClass;// 查询类别
+    private final int udpPayloadSize;// EDNS0通告的UDP载荷大小，0表示不携带OPT记录
 
     //方法
     public DNSPacket(String domain) {
         // 生成一个随机的事务ID
-        this.transactionId = (short) (new Random().nextInt(65535));
+        this(domain, nextTransactionId());
+    }
+
+    // 使用指定的事务ID创建查询报文（由查询引擎分配，保证同时在途的查询ID不重复）
+    public DNSPacket(String domain, short transactionId) {
+        this(domain, transactionId, 0);
+    }
+
+    // 携带EDNS0 OPT记录的查询报文，向服务器通告可接收的UDP载荷大小（RFC 6891）
+    public DNSPacket(String domain, short transactionId, int udpPayloadSize) {
+        this(domain, transactionId, (short) 1, udpPayloadSize);
+    }
+
+    // 指定查询类型的查询报文
+    public DNSPacket(String domain, short transactionId, short queryType, int udpPayloadSize) {
+        if (udpPayloadSize != 0 && (udpPayloadSize < 512 || udpPayloadSize > 65535)) {
+            throw new IllegalArgumentException("UDP载荷大小应在512~65535之间: " + udpPayloadSize);
+        }
+        this.transactionId = transactionId;
         this.flags = 0x0100;
         this.questions = 1;
         this.answerRRs = 0;
         this.authorityRRs = 0;
-        this.additionalRRs = 0;
+        this.additionalRRs = (short) (udpPayloadSize > 0 ? 1 : 0);
         this.queryDomain = domain;
-        this.queryType = 1;   // A记录（IPv4地址）
+        this.queryType = queryType;
         this.queryClass = 1;  // IN类别（Internet）
+        this.udpPayloadSize = udpPayloadSize;
+    }
+
+    // 生成随机事务ID（线程本地随机数，无需每次新建Random）
+    static short nextTransactionId() {
+        return (short) ThreadLocalRandom.current().nextInt(65536);
     }
 
     // 将DNS查询报文转换为字节数组，用于网络传输
     public byte[] getBytes() {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(baos);
-
-            // 写入DNS报文头部
-            dos.writeShort(transactionId);
-            dos.writeShort(flags);
-            dos.writeShort(questions);
-            dos.writeShort(answerRRs);
-            dos.writeShort(authorityRRs);
-            dos.writeShort(additionalRRs);
-
-            // 写入查询域名（使用DNS格式：长度前缀+标签）
-            String[] parts = queryDomain.split("\\.");// 按点分割域名
-            for (String part : parts) {
-                dos.writeByte(part.length());
-                dos.writeBytes(part);
-            }
-            dos.writeByte(0); // 写入一个0字节表示域名结束
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength());
+        writeTo(buffer);
+        return buffer.array();// 长度恰好等于报文长度，无需再复制
+    }
+
+    // 编码后的报文长度
+    public int getEncodedLength() {
+        int length = nameLength(queryDomain);
+        return HEADER_SIZE + (length == 0 ? 1 : length + 2) + 4 + (udpPayloadSize > 0 ? OPT_RECORD_SIZE : 0);
+    }
+
+    // 将报文直接写入调用方提供的缓冲区（从当前位置开始），不产生中间对象
+    public void writeTo(ByteBuffer buffer) {
+        // 写入DNS报文头部
+        buffer.putShort(transactionId);
+        buffer.putShort(flags);
+        buffer.putShort(questions);
+        buffer.putShort(answerRRs);
+        buffer.putShort(authorityRRs);
+        buffer.putShort(additionalRRs);
+
+        // 写入查询域名（使用DNS格式：长度前缀+标签）
+        writeName(buffer, queryDomain);
+
+        // 写入查询类型和查询类别
+        buffer.putShort(queryType);
+        buffer.putShort(queryClass);
 
-            // 写入查询类型和查询类别
-            dos.writeShort(queryType);
-            dos.writeShort(queryClass);
+        // 写入EDNS0 OPT伪记录：根域名、类型41、类别字段为UDP载荷大小、扩展RCODE/版本/标志为0、无选项
+        if (udpPayloadSize > 0) {
+            buffer.put((byte) 0);
+            buffer.putShort((short) 41);
+            buffer.putShort((short) udpPayloadSize);
+            buffer.putInt(0);
+            buffer.putShort((short) 0);
+        }
+    }
 
-            dos.flush();
-            return baos.toByteArray();
+    // 域名去掉末尾的点之后的长度
+    private static int nameLength(String domain) {
+        int length = domain.length();
+        if (length > 0 && domain.charAt(length - 1) == '.') {
+            length--;
+        }
+        return length;
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            return new byte[0];
+    // 校验域名能否编码（标签长度、总长度、字符），不能编码时抛出IllegalArgumentException
+    static void checkName(String domain) {
+        writeName(ByteBuffer.allocate(MAX_NAME_LENGTH), domain);
+    }
+
+    // 逐字符写入域名：先占位长度字节，标签结束时回填，同时校验标签长度和总长度
+    static void writeName(ByteBuffer buffer, String domain) {
+        int length = nameLength(domain);
+        if (length + 2 > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("域名过长: " + domain);
+        }
+
+        int labelStart = buffer.position();
+        int labelLength = 0;
+        buffer.put((byte) 0);
+        for (int i = 0; i < length; i++) {
+            char c = domain.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    throw new IllegalArgumentException("域名包含空标签: " + domain);
+                }
+                buffer.put(labelStart, (byte) labelLength);
+                labelStart = buffer.position();
+                labelLength = 0;
+                buffer.put((byte) 0);
+            } else {
+                if (c > 0x7F) {
+                    throw new IllegalArgumentException("域名包含非ASCII字符: " + domain);
+                }
+                if (++labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("域名标签超过63个字符: " + domain);
+                }
+                buffer.put((byte) c);
+            }
         }
+        if (length > 0) {
+            if (labelLength == 0) {
+                throw new IllegalArgumentException("域名包含空标签: " + domain);
+            }
+            buffer.put(labelStart, (byte) labelLength);
+            buffer.put((byte) 0); // 写入一个0字节表示域名结束
+        }
+    }
+
+    public short getTransactionId() {// 获取事务ID
+        return transactionId;
     }
 
+    public String getQueryDomain() {// 获取查询的域名
+        return queryDomain;
+    }
+
+    public short getQueryType() {// 获取查询类型
+        return queryType;
+    }
 
+    public int getUdpPayloadSize() {// 获取EDNS0通告的UDP载荷大小
+        return udpPayloadSize;
+    }
 }
@@ -0,0 +1,248 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 多路复用的UDP查询引擎：查询分散在一小组DatagramChannel上发出，由一个Selector线程接收响应，
+// 并按事务ID把响应交还给对应的CompletableFuture，从而支持大量查询同时在途。
+// 每个查询随机选用一个通道（即随机的源端口），响应必须来自目标服务器、到达同一通道、QR位为1且问题部分与查询一致，
+// 否则丢弃，伪造应答需要同时猜中事务ID和源端口（RFC 5452）
+class DNSQueryEngine implements Closeable {
+    private static final int MAX_RESPONSE_SIZE = 65535;// 接收缓冲区大小（UDP数据报的上限）
+    private static final int CHANNEL_COUNT = 16;// 通道数，每个通道绑定一个随机的本地端口
+    private static final int MAX_IN_FLIGHT = 65536;// 事务ID为16位，同时在途的查询数不能超过该值
+    private static final ThreadLocal<ByteBuffer> SEND_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(DNSPacket.MAX_QUERY_SIZE));// 每个发送线程复用的编码缓冲区
+
+    private final DatagramChannel[] channels;// 查询使用的UDP通道
+    private final Selector selector;// 监听通道可读事件的选择器
+    private final long timeoutMillis;// 单次查询的超时时间（毫秒）
+    private final int udpPayloadSize;// 通过EDNS0通告的UDP载荷大小
+    private final ConcurrentHashMap<Integer, PendingQuery> pending;// 在途查询表：事务ID -> 等待中的查询
+    private final Thread receiver;// 接收线程
+    private volatile boolean running;// 引擎是否在运行
+    private final LongAdder queriesSent = new LongAdder();// 发出的查询数
+    private final LongAdder bytesSent = new LongAdder();// 发出的字节数
+    private final LongAdder bytesReceived = new LongAdder();// 收到的应答字节数（只计匹配到查询的应答）
+
+    // 等待响应的查询：记录目标服务器、发送通道和问题，用于校验响应
+    private static final class PendingQuery {
+        final SocketAddress server;
+        final DatagramChannel channel;
+        final String name;// 查询的域名（小写，不含末尾的点）
+        final int type;
+        final CompletableFuture<DNSResponse> future;
+
+        PendingQuery(SocketAddress server, DatagramChannel channel, String name, int type) {
+            this.server = server;
+            this.channel = channel;
+            this.name = name;
+            this.type = type;
+            this.future = new CompletableFuture<>();
+        }
+    }
+
+    //方法
+    public DNSQueryEngine(long timeoutMillis) throws IOException {
+        this(timeoutMillis, DNSPacket.DEFAULT_UDP_PAYLOAD_SIZE);
+    }
+
+    public DNSQueryEngine(long timeoutMillis, int udpPayloadSize) throws IOException {
+        this.timeoutMillis = timeoutMillis;
+        this.udpPayloadSize = udpPayloadSize;
+        this.pending = new ConcurrentHashMap<>();
+        this.selector = Selector.open();
+        this.channels = new DatagramChannel[CHANNEL_COUNT];
+        try {
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = DatagramChannel.open();
+                channels[i].configureBlocking(false);
+                channels[i].bind(null);// 绑定到随机本地端口
+                channels[i].register(selector, SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+        this.running = true;
+
+        this.receiver = new Thread(this::receiveLoop, "dns-query-engine");
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    // 向指定服务器发送一条A记录查询
+    public CompletableFuture<DNSResponse> query(String domain, InetSocketAddress server) {
+        return query(domain, (short) 1, server);
+    }
+
+    // 向指定服务器发送一条查询（携带EDNS0 OPT记录），返回在收到匹配响应或超时后完成的Future
+    public CompletableFuture<DNSResponse> query(String domain, short type, InetSocketAddress server) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IOException("查询引擎已关闭"));
+        }
+        if (pending.size() >= MAX_IN_FLIGHT) {
+            return CompletableFuture.failedFuture(new IOException("在途查询过多"));
+        }
+
+        // 随机选择通道，并分配一个当前未被占用的事务ID
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DatagramChannel channel = channels[random.nextInt(channels.length)];
+        PendingQuery query = new PendingQuery(server, channel, normalize(domain), type & 0xFFFF);
+        int id;
+        do {
+            id = random.nextInt(MAX_IN_FLIGHT);
+        } while (pending.putIfAbsent(id, query) != null);
+
+        final int transactionId = id;
+        query.future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> pending.remove(transactionId, query));// 完成或超时后释放事务ID
+
+        try {
+            ByteBuffer buffer = SEND_BUFFER.get();
+            buffer.clear();
+            new DNSPacket(domain, (short) transactionId, type, udpPayloadSize).writeTo(buffer);
+            buffer.flip();
+            int sent = channel.send(buffer, server);
+            if (sent == 0) {
+                query.future.completeExceptionally(new IOException("发送缓冲区已满"));
+            } else {
+                queriesSent.increment();
+                bytesSent.add(sent);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            query.future.completeExceptionally(e);
+        }
+        return query.future;
+    }
+
+    // 单次查询的超时时间（毫秒）
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    // 当前在途的查询数
+    public int getInFlightCount() {
+        return pending.size();
+    }
+
+    public long getQueriesSent() {// 发出的查询数
+        return queriesSent.sum();
+    }
+
+    public long getBytesSent() {// 发出的字节数
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {// 收到的应答字节数
+        return bytesReceived.sum();
+    }
+
+    // 接收循环：读出各通道上所有到达的数据报，按事务ID分发
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_RESPONSE_SIZE);
+        while (running) {
+            try {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    DatagramChannel channel = (DatagramChannel) key.channel();
+                    SocketAddress source;
+                    while ((source = channel.receive(buffer)) != null) {
+                        buffer.flip();
+                        dispatch(channel, source, buffer);
+                        buffer.clear();
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("接收DNS响应时发生错误：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 把一个响应数据报交给对应的在途查询
+    private void dispatch(DatagramChannel channel, SocketAddress source, ByteBuffer buffer) {
+        if (buffer.remaining() < 12) {
+            return; // 不足一个报文头部，丢弃
+        }
+        int id = buffer.getShort(buffer.position()) & 0xFFFF;
+        PendingQuery query = pending.get(id);
+        if (query == null || query.channel != channel || !query.server.equals(source)) {
+            return; // 迟到的响应或来源不符，丢弃
+        }
+
+        byte[] responseData = new byte[buffer.remaining()];
+        buffer.get(responseData);
+        DNSResponse response = new DNSResponse(responseData);
+        if (!matches(query, response) || !pending.remove(id, query)) {
+            return; // 不是对该查询的应答，丢弃（查询保持在途，真正的应答仍可匹配）
+        }
+        bytesReceived.add(responseData.length);
+        query.future.complete(response);
+    }
+
+    // 应答须置QR位，且只有一个与查询相同的问题（域名不区分大小写，类别为IN）
+    private static boolean matches(PendingQuery query, DNSResponse response) {
+        try {
+            return (response.getFlags() & 0x8000) != 0
+                    && response.getQuestionCount() == 1
+                    && response.getQuestionType() == query.type
+                    && response.getQuestionClass() == 1
+                    && query.name.equals(normalize(response.getQuestionName()));
+        } catch (RuntimeException e) {
+            return false;// 格式错误的报文
+        }
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return null;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".") ? lower.substring(0, lower.length() - 1) : lower;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            receiver.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        selector.close();
+        closeChannels();
+
+        IOException closed = new IOException("查询引擎已关闭");
+        for (PendingQuery query : pending.values()) {
+            query.future.completeExceptionally(closed);
+        }
+        pending.clear();
+    }
+
+    private void closeChannels() throws IOException {
+        for (DatagramChannel channel : channels) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+// 令牌桶限速：按固定速率产生令牌，桶中最多积累burst个，取不到令牌时阻塞等待。
+// 只记录下一个令牌的产生时间，不需要定时补充令牌的线程
+class DNSRateLimiter {
+    private final long intervalNanos;// 产生一个令牌的间隔
+    private final long burstNanos;// 桶满时可提前取用的时间量（burst个令牌）
+    private long nextTokenNanos = Long.MIN_VALUE / 2;// 下一个令牌的产生时间
+
+    //方法
+    public DNSRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("速率和突发量必须大于0");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    // 取一个令牌，必要时等待
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextTokenNanos = Math.max(nextTokenNanos, now - burstNanos);// 空闲期间最多积累burst个令牌
+            nextTokenNanos += intervalNanos;
+            waitNanos = nextTokenNanos - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
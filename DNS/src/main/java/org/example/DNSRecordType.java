@@ -0,0 +1,84 @@
+package org.example;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// DNS记录类型常量，以及类型编号与名称之间的转换
+final class DNSRecordType {
+    static final short A = 1;// IPv4地址
+    static final short NS = 2;// 权威域名服务器
+    static final short CNAME = 5;// 规范名称（别名）
+    static final short SOA = 6;// 授权起始
+    static final short PTR = 12;// 反向解析指针
+    static final short MX = 15;// 邮件交换
+    static final short TXT = 16;// 文本
+    static final short AAAA = 28;// IPv6地址
+    static final short OPT = 41;// EDNS0伪记录
+
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");// 点分十进制IPv4地址（批量反向解析时每个地址都要判断，预先编译）
+
+    private DNSRecordType() {
+    }
+
+    //方法
+    // 类型编号对应的名称，未知类型按RFC 3597写作TYPEn
+    static String name(int type) {
+        switch (type) {
+            case A: return "A";
+            case NS: return "NS";
+            case CNAME: return "CNAME";
+            case SOA: return "SOA";
+            case PTR: return "PTR";
+            case MX: return "MX";
+            case TXT: return "TXT";
+            case AAAA: return "AAAA";
+            case OPT: return "OPT";
+            default: return "TYPE" + type;
+        }
+    }
+
+    // 解析类型名称（不区分大小写），也接受TYPEn形式
+    static short parse(String name) {
+        String upper = name.trim().toUpperCase(Locale.ROOT);
+        for (short type : new short[]{A, NS, CNAME, SOA, PTR, MX, TXT, AAAA}) {
+            if (name(type).equals(upper)) {
+                return type;
+            }
+        }
+        if (upper.startsWith("TYPE")) {
+            try {
+                int type = Integer.parseInt(upper.substring(4));
+                if (type >= 0 && type <= 65535) {
+                    return (short) type;
+                }
+            } catch (NumberFormatException e) {
+                // 按未知类型处理
+            }
+        }
+        throw new IllegalArgumentException("未知的记录类型: " + name);
+    }
+
+    // 是否为IP地址字面量（用于在调用InetAddress.getByName之前排除普通域名，避免触发系统解析）
+    static boolean isAddressLiteral(String text) {
+        return text.indexOf(':') >= 0 || IPV4_LITERAL.matcher(text).matches();
+    }
+
+    // IP地址对应的反向解析域名（in-addr.arpa / ip6.arpa）
+    static String reverseName(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        StringBuilder name = new StringBuilder();
+        if (address instanceof Inet4Address) {
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                name.append(bytes[i] & 0xFF).append('.');
+            }
+            return name.append("in-addr.arpa").toString();
+        }
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            name.append(Character.forDigit(bytes[i] & 0x0F, 16)).append('.')
+                    .append(Character.forDigit((bytes[i] >>> 4) & 0x0F, 16)).append('.');
+        }
+        return name.append("ip6.arpa").toString();
+    }
+}
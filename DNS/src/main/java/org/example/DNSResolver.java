@@ -1,30 +1,65 @@
 package org.example;
 
 // Main Application Class
+import javax.management.JMException;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 // 声明GUI组件
 public class DNSResolver extends JFrame {
     private final JTextField domainField;
+    private final JComboBox<String> typeBox;// 查询类型
     private final JTextArea resultArea;
     private final JLabel statusLabel;
-
-    // 定义DNS服务器IP和端口（使用Google的公共DNS服务器）
-    private static final String DNS_SERVER = "8.8.8.8";
-    private static final int DNS_PORT = 53;
+    private final JLabel metricsLabel;// 实时指标摘要
+    private final JTextArea batchInput;// 批量模式的域名输入（每行一个）
+    private final JComboBox<String> batchTypeBox;// 批量模式的查询类型
+    private final JLabel batchFileLabel;// 批量模式选中的输入文件
+    private final JLabel batchProgressLabel;// 批量模式的进度
+    private final JButton batchStartButton;
+    private final JButton batchCancelButton;
+    private final DNSResultTableModel batchModel;// 批量结果表格的模型
+    private File batchFile;// 选中的输入文件，为null时使用输入框中的域名
+    private SwingWorker<Long, DNSBatchResolver.BatchResult> batchWorker;// 正在运行的批量解析
+
+    // 定义上游DNS服务器列表（IP[:端口]，逗号分隔），可通过系统属性dns.servers覆盖
+    private static final String DNS_SERVERS = System.getProperty("dns.servers", "8.8.8.8,114.114.114.114");
+    private static final long QUERY_TIMEOUT_MILLIS = 5000;// 查询超时时间
+    private static final int CACHE_SIZE = 10000;// 应答缓存的最大条目数
+    private static final String CACHE_FILE = System.getProperty("dns.cacheFile",
+            System.getProperty("user.home") + File.separator + ".dns-resolver" + File.separator + "cache.bin");// 缓存快照文件，重启后从中恢复
+    private static final long CACHE_SNAPSHOT_SECONDS = 60;// 缓存快照的保存间隔
+    private static final int UDP_PAYLOAD_SIZE =
+            Integer.getInteger("dns.udpPayloadSize", DNSPacket.DEFAULT_UDP_PAYLOAD_SIZE);// EDNS0通告的UDP载荷大小
+
+    private static final String DUAL_STACK = "A+AAAA";// 同时查询IPv4和IPv6地址
+    private static final String[] QUERY_TYPES = {"A", "AAAA", DUAL_STACK, "CNAME", "MX", "TXT", "NS", "PTR"};
+
+    private static final int METRICS_REFRESH_MILLIS = 1000;// 状态栏指标的刷新间隔
+    private static final int BATCH_CONCURRENCY = 256;// 批量模式同时在途的查询数
+    private static final int BATCH_RETRIES = 1;// 批量模式超时后的重试次数
+    private static final String[] BATCH_TYPES = {"A", "AAAA", "PTR"};// 批量模式可选的类型，PTR时可输入IP地址或CIDR地址块
+
+    private static DNSClient dnsClient;// 所有查询共享的客户端（查询引擎 + 应答缓存）
+    private static DNSMetrics dnsMetrics;// 共享客户端的指标（同时注册为JMX MBean）
 
 
     public DNSResolver() {
 
         // 设置窗口基本属性
         setTitle("DNS 解析器");
-        setSize(600, 400);
+        setSize(800, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout(10, 10));
 
@@ -35,13 +70,17 @@ public class DNSResolver extends JFrame {
         domainField = new JTextField(30);
         inputPanel.add(domainLabel, BorderLayout.WEST);
         inputPanel.add(domainField, BorderLayout.CENTER);
+        typeBox = new JComboBox<>(QUERY_TYPES);
 
         // 创建按钮面板
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        buttonPanel.add(typeBox);
         JButton resolveButton = new JButton("解析");
         JButton clearButton = new JButton("清除");
+        JButton metricsButton = new JButton("统计");
         buttonPanel.add(resolveButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(metricsButton);
         inputPanel.add(buttonPanel, BorderLayout.EAST);
 
         // 创建结果面板
@@ -63,10 +102,47 @@ public class DNSResolver extends JFrame {
         statusPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
         statusLabel = new JLabel("就绪");
         statusPanel.add(statusLabel, BorderLayout.WEST);
+        metricsLabel = new JLabel();
+        statusPanel.add(metricsLabel, BorderLayout.EAST);
+
+        JPanel singlePanel = new JPanel(new BorderLayout());
+        singlePanel.add(inputPanel, BorderLayout.NORTH);
+        singlePanel.add(resultPanel, BorderLayout.CENTER);
+
+        // 创建批量查询面板：上方输入域名，下方表格按完成顺序追加结果
+        JPanel batchPanel = new JPanel(new BorderLayout(5, 5));
+        batchPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        JPanel batchButtons = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        JButton openButton = new JButton("打开文件...");
+        batchFileLabel = new JLabel("（使用下方输入的域名）");
+        batchStartButton = new JButton("开始");
+        batchCancelButton = new JButton("取消");
+        batchCancelButton.setEnabled(false);
+        batchProgressLabel = new JLabel();
+        batchTypeBox = new JComboBox<>(BATCH_TYPES);
+        batchButtons.add(openButton);
+        batchButtons.add(batchFileLabel);
+        batchButtons.add(batchTypeBox);
+        batchButtons.add(batchStartButton);
+        batchButtons.add(batchCancelButton);
+        batchButtons.add(batchProgressLabel);
+
+        batchInput = new JTextArea(6, 40);
+        batchModel = new DNSResultTableModel();
+        JTable batchTable = new JTable(batchModel);
+        batchTable.setFillsViewportHeight(true);
+        batchTable.getColumnModel().getColumn(2).setPreferredWidth(300);
+        JSplitPane batchSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(batchInput), new JScrollPane(batchTable));
+        batchSplit.setResizeWeight(0.2);
+        batchPanel.add(batchButtons, BorderLayout.NORTH);
+        batchPanel.add(batchSplit, BorderLayout.CENTER);
 
         // 将所有面板添加到主窗口
-        add(inputPanel, BorderLayout.NORTH);
-        add(resultPanel, BorderLayout.CENTER);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("单个查询", singlePanel);
+        tabs.addTab("批量查询", batchPanel);
+        add(tabs, BorderLayout.CENTER);
         add(statusPanel, BorderLayout.SOUTH);
 
         // 添加事件监听器
@@ -84,6 +160,49 @@ public class DNSResolver extends JFrame {
             }
         });
 
+        // 批量模式：选择输入文件（按行流式读取，不载入输入框）
+        openButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                JFileChooser chooser = new JFileChooser();
+                if (chooser.showOpenDialog(DNSResolver.this) == JFileChooser.APPROVE_OPTION) {
+                    batchFile = chooser.getSelectedFile();
+                    batchFileLabel.setText(batchFile.getName());
+                }
+            }
+        });
+
+        batchStartButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                resolveBatch();
+            }
+        });
+
+        batchCancelButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (batchWorker != null) {
+                    batchWorker.cancel(true);
+                }
+            }
+        });
+
+        // 显示完整的指标
+        metricsButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                DNSMetrics metrics = getDnsMetrics();
+                resultArea.setText(metrics == null ? "尚未进行查询\n" : metrics.getDump());
+            }
+        });
+
+        // 定时在事件线程上刷新状态栏的指标摘要（只读取计数器，不阻塞界面）
+        new javax.swing.Timer(METRICS_REFRESH_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                DNSMetrics metrics = getDnsMetrics();
+                if (metrics != null) {
+                    metricsLabel.setText(metrics.getSummary());
+                }
+            }
+        }).start();
+
         // 为域名输入框添加键盘事件监听器
         domainField.addKeyListener(new KeyAdapter() {
             @Override
@@ -104,7 +223,8 @@ public class DNSResolver extends JFrame {
             return;
         }
 
-        statusLabel.setText("正在解析 " + domain + "...");
+        String type = (String) typeBox.getSelectedItem();
+        statusLabel.setText("正在解析 " + domain + " (" + type + ")...");
         resultArea.setText("");
         /*
           在后台线程中执行DNS查询！
@@ -113,7 +233,7 @@ public class DNSResolver extends JFrame {
             @Override
             protected String doInBackground() throws Exception {
                 try {
-                    return performDNSQuery(domain);  // 执行DNS查询并返回结果
+                    return performDNSQuery(domain, type);  // 执行DNS查询并返回结果
                 } catch (Exception e) {
                     return "错误: " + e.getMessage();
                 }
@@ -135,67 +255,118 @@ public class DNSResolver extends JFrame {
         worker.execute();
     }
 
-    //构建DNS查询报文，发送到DNS服务器，解析响应
-    private String performDNSQuery(String domain) {
-        StringBuilder result = new StringBuilder();
-        try {
-            result.append("查询域名: ").append(domain).append("\n\n");// 添加查询域名信息
-
-            // 创建DNS查询报文
-            DNSPacket queryPacket = new DNSPacket(domain);
-            byte[] queryData = queryPacket.getBytes();
+    // 批量解析：后台线程保持固定数量的查询在途，结果经publish送到事件线程，
+    // SwingWorker会把两次process之间发布的结果合并成一批，表格每批只通知一次
+    private void resolveBatch() {
+        File file = batchFile;
+        String text = batchInput.getText();
+        short type = DNSRecordType.parse((String) batchTypeBox.getSelectedItem());
+        if (file == null && text.isBlank()) {
+            JOptionPane.showMessageDialog(this, "请输入域名或选择文件", "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            // 创建UDP套接字并发送查询
-            DatagramSocket socket = new DatagramSocket();
-            socket.setSoTimeout(5000);
+        batchModel.clear();
+        batchStartButton.setEnabled(false);
+        batchCancelButton.setEnabled(true);
+        batchProgressLabel.setText("正在解析...");
+        long start = System.nanoTime();
 
-            InetAddress dnsServer = InetAddress.getByName(DNS_SERVER);// 根据IP地址获取DNS服务器的InetAddress对象
-            DatagramPacket packet = new DatagramPacket(queryData, queryData.length, dnsServer, DNS_PORT);// 创建UDP数据包
+        batchWorker = new SwingWorker<Long, DNSBatchResolver.BatchResult>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                try (BufferedReader input = file != null
+                        ? Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)
+                        : new BufferedReader(new StringReader(text))) {
+                    DNSBatchResolver batch = new DNSBatchResolver(getDnsClient(), BATCH_CONCURRENCY, BATCH_RETRIES,
+                            DNSBatchResolver.OutputFormat.CSV, type, 0);
+                    return batch.resolveAll(input, result -> publish(result));
+                }
+            }
 
-            result.append("正在向DNS服务器发送查询: ").append(DNS_SERVER).append("\n");
-            socket.send(packet);
+            @Override
+            protected void process(List<DNSBatchResolver.BatchResult> chunk) {
+                batchModel.addAll(chunk);
+                batchProgressLabel.setText("已完成 " + batchModel.getRowCount());
+            }
 
-            // 接收响应
-            byte[] responseBuffer = new byte[1024];
-            DatagramPacket responsePacket = new DatagramPacket(responseBuffer, responseBuffer.length);
+            @Override
+            protected void done() {
+                batchStartButton.setEnabled(true);
+                batchCancelButton.setEnabled(false);
+                if (isCancelled()) {
+                    batchProgressLabel.setText("已取消，完成 " + batchModel.getRowCount());
+                    return;
+                }
+                try {
+                    batchProgressLabel.setText(String.format("完成，共 %d 个域名，用时 %.1f 秒",
+                            get(), (System.nanoTime() - start) / 1e9));
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    batchProgressLabel.setText("发生错误: " + cause.getMessage());
+                }
+            }
+        };
+        batchWorker.execute();
+    }
 
-            result.append("等待响应...\n");
-            socket.receive(responsePacket);// 接收响应数据包
+    // 获取共享的DNS客户端（首次使用时创建）
+    private static synchronized DNSClient getDnsClient() throws IOException {
+        if (dnsClient == null) {
+            DNSQueryEngine engine = new DNSQueryEngine(QUERY_TIMEOUT_MILLIS, UDP_PAYLOAD_SIZE);
+            DNSCache cache = new DNSCache(CACHE_SIZE);
+            DNSCacheSnapshot.persist(cache, Paths.get(CACHE_FILE), CACHE_SNAPSHOT_SECONDS);
+            dnsClient = new DNSClient(engine, cache, DNSUpstreamPool.parse(DNS_SERVERS));
+            dnsMetrics = new DNSMetrics(dnsClient);
+            try {
+                dnsMetrics.register("DNSResolver");
+            } catch (JMException e) {
+                System.out.println("注册JMX指标时发生错误：" + e.getMessage());
+            }
+        }
+        return dnsClient;
+    }
 
-            // 解析响应
-            byte[] responseData = new byte[responsePacket.getLength()];// 创建一个大小刚好的数组用于存储响应数据
-            System.arraycopy(responsePacket.getData(), 0, responseData, 0, responsePacket.getLength());
+    // 获取共享客户端的指标，客户端尚未创建时返回null
+    private static synchronized DNSMetrics getDnsMetrics() {
+        return dnsMetrics;
+    }
 
-            result.append("收到响应. 正在解析...\n\n");
-            DNSResponse response = new DNSResponse(responseData);// 创建DNS响应对象并解析响应数据
+    //构建DNS查询报文，发送到DNS服务器，解析响应；A+AAAA时两个查询同时发出
+    private String performDNSQuery(String domain, String typeName) {
+        StringBuilder result = new StringBuilder();
+        try {
+            result.append("查询域名: ").append(domain).append("\n\n");// 添加查询域名信息
 
-            // 处理并显示结果
-            result.append("响应信息:\n");
-            result.append("交易ID: 0x").append(String.format("%04X", response.getTransactionId())).append("\n");
-            result.append("标志: 0x").append(String.format("%04X", response.getFlags())).append("\n");
-            result.append("问题数: ").append(response.getQuestionCount()).append("\n");
-            result.append("回答数: ").append(response.getAnswerCount()).append("\n");
-            result.append("授权记录数: ").append(response.getAuthorityCount()).append("\n");
-            result.append("附加记录数: ").append(response.getAdditionalCount()).append("\n\n");
+            List<Short> types = DUAL_STACK.equals(typeName)
+                    ? List.of(DNSRecordType.A, DNSRecordType.AAAA)
+                    : List.of(DNSRecordType.parse(typeName));
+            String name = domain;
+            if (types.get(0) == DNSRecordType.PTR && DNSRecordType.isAddressLiteral(domain)) {
+                name = DNSRecordType.reverseName(InetAddress.getByName(domain));// 输入IP地址时转换为反向解析域名
+            }
 
-            result.append("查询部分:\n");
-            result.append(domain).append(" IN A\n\n");
+            // 通过共享的客户端查询（先查缓存，未命中时所有查询共用一个UDP通道），应答内已有CNAME目标的记录时不再追加查询
+            result.append("正在向DNS服务器发送查询: ").append(DNS_SERVERS).append("\n");
+            List<CompletableFuture<DNSResponse>> futures = new ArrayList<>();
+            for (short type : types) {
+                futures.add(getDnsClient().resolveFollowingCnames(name, type));
+            }
 
-            result.append("回答部分:\n");
-            List<String> ipAddresses = response.getIPAddresses();
+            // 等待响应
+            result.append("等待响应...\n");
+            for (int i = 0; i < types.size(); i++) {
+                DNSResponse response = futures.get(i).get();
+                result.append("\n");
+                appendResponse(result, name, types.get(i), response);
+            }
 
-            if (ipAddresses.isEmpty()) {
-                result.append("未找到此域名的IP地址.\n");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                result.append("错误: DNS查询超时\n");// 处理查询超时
             } else {
-                for (String ip : ipAddresses) {
-                    result.append(domain).append(" IN A ").append(ip).append("\n");
-                }
+                result.append("错误: ").append(e.getCause().toString()).append("\n");
             }
-
-            socket.close();
-
-        } catch (SocketTimeoutException e) {
-            result.append("错误: DNS查询超时\n");// 处理套接字超时异常
         } catch (UnknownHostException e) {
             result.append("错误: 无法连接到DNS服务器\n");
         } catch (Exception e) {
@@ -205,6 +376,35 @@ public class DNSResolver extends JFrame {
         return result.toString();
     }
 
+    // 显示一个应答的头部信息、CNAME链和所需类型的记录
+    private static void appendResponse(StringBuilder result, String name, short type, DNSResponse response) {
+        String typeName = DNSRecordType.name(type);
+        result.append("收到 ").append(typeName).append(" 响应. 正在解析...\n\n");
+
+        // 处理并显示结果
+        result.append("响应信息:\n");
+        result.append("交易ID: 0x").append(String.format("%04X", response.getTransactionId())).append("\n");
+        result.append("标志: 0x").append(String.format("%04X", response.getFlags()))
+                .append(" (").append(response.getResponseCodeName()).append(")\n");
+        result.append("问题数: ").append(response.getQuestionCount()).append("\n");
+        result.append("回答数: ").append(response.getAnswerCount()).append("\n");
+        result.append("授权记录数: ").append(response.getAuthorityCount()).append("\n");
+        result.append("附加记录数: ").append(response.getAdditionalCount()).append("\n\n");
+
+        result.append("查询部分:\n");
+        result.append(name).append(" IN ").append(typeName).append("\n\n");
+
+        result.append("回答部分:\n");
+        for (int i = response.getSectionStart(DNSResponse.SECTION_ANSWER); i < response.getSectionEnd(DNSResponse.SECTION_ANSWER); i++) {
+            result.append(response.getRecordName(i)).append(" ").append(response.getRecordTtl(i))
+                    .append(" IN ").append(DNSRecordType.name(response.getRecordType(i)))
+                    .append(" ").append(response.getRecordData(i)).append("\n");
+        }
+        if (response.getAnswerData(type).isEmpty()) {
+            result.append("未找到此域名的").append(typeName).append("记录.\n");
+        }
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
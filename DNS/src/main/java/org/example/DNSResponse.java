@@ -1,104 +1,164 @@
 package org.example;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-// DNS响应解析类：
+// DNS响应解析类：构造时只扫描一遍报文，记录每条资源记录的偏移量，
+// 域名、TTL和RDATA等字段在读取时才解码
 class DNSResponse {
+    static final int SECTION_ANSWER = 0;// 回答部分
+    static final int SECTION_AUTHORITY = 1;// 授权部分
+    static final int SECTION_ADDITIONAL = 2;// 附加部分
+
+    private static final int MAX_NAME_LENGTH = 255;// 解压后域名的最大长度
+    private static final int MAX_CNAME_CHAIN = 16;// 在应答内跟随CNAME的最大次数，防止环状链
+
     private final byte[] responseData;// 存储响应数据的字节数组
-    private int position;// 当前解析位置
+    private final ByteBuffer buffer;// 响应数据的缓冲区视图，用于按绝对位置读取
     private short transactionId;// 事务ID
     private short flags;// 标志字段
     private short questionCount;// 问题记录数
     private short answerCount;// 回答记录数
     private short authorityCount;// 授权记录数
     private short additionalCount;// 附加记录数
-    private final List<String> ipAddresses;// 存储解析出的IP地址列表
+    private final long receivedAtMillis;// 收到响应的时间（毫秒时间戳），用于转发时扣减TTL
+    private int questionOffset = -1;// 第一个问题的偏移量
+    private int questionEnd = -1;// 问题部分结束的偏移量
+    private int[] recordOffsets;// 每条资源记录两个值：域名的偏移量、类型字段的偏移量
+    private int recordCount;// 成功索引的资源记录数
+    private int[] sectionStarts;// 各部分第一条记录的序号
+    private List<String> ipAddresses;// 解析出的IP地址列表（首次读取时生成）
     //方法
-    public DNSResponse(byte[] responseData) { //初始化并解析DNS响应
+    public DNSResponse(byte[] responseData) { //初始化并索引DNS响应
+        this(responseData, System.currentTimeMillis());
+    }
+
+    public DNSResponse(byte[] responseData, long receivedAtMillis) {
         this.responseData = responseData;
-        this.position = 0;
-        this.ipAddresses = new ArrayList<>();
+        this.receivedAtMillis = receivedAtMillis;
+        this.buffer = ByteBuffer.wrap(responseData);
         parseResponse();
     }
 
-    // 解析DNS响应报文
+    // 扫描DNS响应报文，只记录各条记录的位置
     private void parseResponse() {
+        int position = 0;
+        recordOffsets = new int[0];
+        sectionStarts = new int[]{0, 0, 0, 0};
         try {
             // 解析DNS报文头部
-            transactionId = readShort();
-            flags = readShort();
-            questionCount = readShort();
-            answerCount = readShort();
-            authorityCount = readShort();
-            additionalCount = readShort();
+            transactionId = buffer.getShort(0);
+            flags = buffer.getShort(2);
+            questionCount = buffer.getShort(4);
+            answerCount = buffer.getShort(6);
+            authorityCount = buffer.getShort(8);
+            additionalCount = buffer.getShort(10);
+            position = DNSPacket.HEADER_SIZE;
 
             // 跳过问题部分
-            for (int i = 0; i < questionCount; i++) {
-                skipDomainName();
-                position += 4; // 跳过查询类型和查询类别（各2字节）
+            int questions = questionCount & 0xFFFF;
+            if (questions > 0) {
+                questionOffset = position;
             }
+            for (int i = 0; i < questions; i++) {
+                position = skipDomainName(position) + 4; // 跳过查询类型和查询类别（各2字节）
+            }
+            if (position > responseData.length) {
+                throw new IndexOutOfBoundsException("问题部分超出报文长度");
+            }
+            questionEnd = position;
 
-            // 解析回答部分
-            for (int i = 0; i < answerCount; i++) {
-                skipDomainName();// 跳过域名
-
-                short type = readShort();
-                short aClass = readShort();
-                /* TTL */ readInt();
-                short dataLength = readShort();
-
-                if (type == 1 && aClass == 1) { // 如果是A记录（IPv4地址）且为IN类别
-
-                    StringBuilder ip = new StringBuilder();
-                    for (int j = 0; j < 4; j++) {
-                        ip.append(responseData[position++] & 0xFF);
-                        if (j < 3) ip.append(".");
+            // 索引回答、授权和附加部分
+            int[] counts = {answerCount & 0xFFFF, authorityCount & 0xFFFF, additionalCount & 0xFFFF};
+            int maxRecords = (responseData.length - position) / 11;// 每条记录至少11字节，避免按伪造的计数分配过大的数组
+            recordOffsets = new int[Math.min(counts[0] + counts[1] + counts[2], maxRecords) * 2];
+            for (int section = 0; section < 3; section++) {
+                sectionStarts[section] = recordCount;
+                sectionStarts[section + 1] = recordCount;
+                for (int i = 0; i < counts[section]; i++) {
+                    int typeOffset = skipDomainName(position);
+                    int dataLength = buffer.getShort(typeOffset + 8) & 0xFFFF;
+                    int end = typeOffset + 10 + dataLength;
+                    if (end > responseData.length) {
+                        throw new IndexOutOfBoundsException("记录数据超出报文长度");
                     }
-                    ipAddresses.add(ip.toString());
-                } else {
-                    // 跳过其他类型的记录
-                    position += dataLength;
+                    recordOffsets[recordCount * 2] = position;
+                    recordOffsets[recordCount * 2 + 1] = typeOffset;
+                    recordCount++;
+                    sectionStarts[section + 1] = recordCount;
+                    position = end;
                 }
             }
         } catch (Exception e) {
             System.out.println("解析DNS响应报文时发生错误：" + e.getMessage());
         }
+        // 解析中断时，后续部分视为空
+        for (int section = 1; section < sectionStarts.length; section++) {
+            sectionStarts[section] = Math.max(sectionStarts[section], sectionStarts[section - 1]);
+        }
     }
 
-    // 读取一个短整数（2字节，无符号）
-    private short readShort() {
-        short value = (short) ((responseData[position] & 0xFF) << 8 | (responseData[position + 1] & 0xFF));
-        position += 2;
-        return value;
-    }
-    // 读取一个整数（4字节，无符号）
-    private void readInt() {
-        int value = ((responseData[position] & 0xFF) << 24) |
-                ((responseData[position + 1] & 0xFF) << 16) |
-                ((responseData[position + 2] & 0xFF) << 8) |
-                (responseData[position + 3] & 0xFF);
-        position += 4;
-    }
-    // 跳过域名（处理DNS中的域名压缩）
-    private void skipDomainName() {
+    // 跳过域名（遇到压缩指针即结束），返回域名之后的位置
+    private int skipDomainName(int position) {
         while (true) {
             int length = responseData[position] & 0xFF;
             // 处理压缩指针（前两位为11）
             if ((length & 0xC0) == 0xC0) {
-                position += 2; // 跳过指针（2字节）
-                return;
+                return position + 2; // 跳过指针（2字节）
+            }
+            if ((length & 0xC0) != 0) {
+                throw new IllegalStateException("不支持的标签类型: 0x" + Integer.toHexString(length));
             }
             // 域名结束（长度为0）
             if (length == 0) {
-                position++;
-                return;
+                return position + 1;
             }
             // 跳过常规标签
             position += length + 1;
         }
     }
 
+    // 从指定位置读取域名，跟随压缩指针；指针只能指向更早的位置，以防止循环
+    String readName(int offset) {
+        StringBuilder name = new StringBuilder();
+        int position = offset;
+        int limit = position;// 下一个压缩指针必须指向该位置之前
+        int length = 0;
+        while (true) {
+            int labelLength = responseData[position] & 0xFF;
+            if ((labelLength & 0xC0) == 0xC0) {
+                int target = ((labelLength & 0x3F) << 8) | (responseData[position + 1] & 0xFF);
+                if (target >= limit) {
+                    throw new IllegalStateException("域名压缩指针循环");
+                }
+                position = target;
+                limit = target;
+                continue;
+            }
+            if ((labelLength & 0xC0) != 0) {
+                throw new IllegalStateException("不支持的标签类型: 0x" + Integer.toHexString(labelLength));
+            }
+            if (labelLength == 0) {
+                return name.toString();
+            }
+            length += labelLength + 1;
+            if (length + 1 > MAX_NAME_LENGTH) {
+                throw new IllegalStateException("域名超过255字节");
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            for (int i = 1; i <= labelLength; i++) {
+                name.append((char) (responseData[position + i] & 0xFF));
+            }
+            position += labelLength + 1;
+        }
+    }
+
     public short getTransactionId() {// 获取事务ID
         return transactionId;
     }
@@ -123,12 +183,285 @@ class DNSResponse {
         return additionalCount;
     }
 
-    public List<String> getIPAddresses() { // 获取解析出的IP地址列表
+    public boolean isTruncated() {// 是否被截断（TC标志），截断的应答应改用TCP重新查询
+        return (flags & 0x0200) != 0;
+    }
+
+    public int getResponseCode() {// 获取响应码（0为成功，3为域名不存在）
+        return flags & 0x0F;
+    }
+
+    public String getResponseCodeName() {// 获取响应码名称
+        switch (getResponseCode()) {
+            case 0: return "NOERROR";
+            case 1: return "FORMERR";
+            case 2: return "SERVFAIL";
+            case 3: return "NXDOMAIN";
+            case 4: return "NOTIMP";
+            case 5: return "REFUSED";
+            default: return "RCODE" + getResponseCode();
+        }
+    }
+
+    public byte[] getData() {// 获取原始响应数据
+        return responseData;
+    }
+
+    public long getReceivedAtMillis() {// 获取收到响应的时间
+        return receivedAtMillis;
+    }
+
+    public int getQuestionEnd() {// 问题部分结束的偏移量，解析失败时为-1
+        return questionEnd;
+    }
+
+    // 复制一份转发给客户端的报文：替换事务ID，并按已缓存的时间扣减各记录的TTL（OPT记录除外）
+    public byte[] toWire(short clientTransactionId, long nowMillis) {
+        byte[] copy = responseData.clone();
+        ByteBuffer view = ByteBuffer.wrap(copy);
+        view.putShort(0, clientTransactionId);
+        int elapsedSeconds = (int) Math.max(0, (nowMillis - receivedAtMillis) / 1000);
+        if (elapsedSeconds > 0) {
+            for (int i = 0; i < recordCount; i++) {
+                if (getRecordType(i) != 41) {
+                    view.putInt(recordOffsets[i * 2 + 1] + 4, Math.max(0, getRecordTtl(i) - elapsedSeconds));
+                }
+            }
+        }
+        return copy;
+    }
+
+    public String getQuestionName() {// 获取第一个问题的域名，没有问题时返回null
+        return questionOffset < 0 ? null : readName(questionOffset);
+    }
+
+    public int getQuestionType() {// 获取第一个问题的查询类型
+        return questionOffset < 0 ? -1 : buffer.getShort(skipDomainName(questionOffset)) & 0xFFFF;
+    }
+
+    public int getQuestionClass() {// 获取第一个问题的查询类别
+        return questionOffset < 0 ? -1 : buffer.getShort(skipDomainName(questionOffset) + 2) & 0xFFFF;
+    }
+
+    public int getRecordCount() {// 成功索引的资源记录总数（三个部分合计）
+        return recordCount;
+    }
+
+    public int getSectionStart(int section) {// 某部分第一条记录的序号
+        return sectionStarts[section];
+    }
+
+    public int getSectionEnd(int section) {// 某部分最后一条记录之后的序号
+        return sectionStarts[section + 1];
+    }
+
+    public String getRecordName(int record) {// 记录的域名（解压后）
+        return readName(recordOffsets[record * 2]);
+    }
+
+    public int getRecordType(int record) {// 记录类型
+        return buffer.getShort(recordOffsets[record * 2 + 1]) & 0xFFFF;
+    }
+
+    public int getRecordClass(int record) {// 记录类别
+        return buffer.getShort(recordOffsets[record * 2 + 1] + 2) & 0xFFFF;
+    }
+
+    public int getRecordTtl(int record) {// 记录TTL（秒），最高位为1的值按0处理（RFC 2181）
+        return Math.max(buffer.getInt(recordOffsets[record * 2 + 1] + 4), 0);
+    }
+
+    public int getRecordDataOffset(int record) {// RDATA在报文中的偏移量
+        return recordOffsets[record * 2 + 1] + 10;
+    }
+
+    public int getRecordDataLength(int record) {// RDATA长度
+        return buffer.getShort(recordOffsets[record * 2 + 1] + 8) & 0xFFFF;
+    }
+
+    public int getIPv4Address(int record) {// A记录的地址（大端序int）
+        return buffer.getInt(getRecordDataOffset(record));
+    }
+
+    public byte[] getAddressBytes(int record) {// A/AAAA记录的原始地址字节
+        int offset = getRecordDataOffset(record);
+        byte[] address = new byte[getRecordDataLength(record)];
+        System.arraycopy(responseData, offset, address, 0, address.length);
+        return address;
+    }
+
+    public InetAddress getInetAddress(int record) throws UnknownHostException {// A/AAAA记录的地址
+        return InetAddress.getByAddress(getAddressBytes(record));
+    }
+
+    public List<String> getIPAddresses() { // 获取回答部分中的IP地址列表（A和AAAA记录）
+        if (ipAddresses == null) {
+            List<String> addresses = new ArrayList<>();
+            for (int i = getSectionStart(SECTION_ANSWER); i < getSectionEnd(SECTION_ANSWER); i++) {
+                if (isAddressRecord(i)) {
+                    addresses.add(formatAddress(i));
+                }
+            }
+            ipAddresses = Collections.unmodifiableList(addresses);
+        }
         return ipAddresses;
     }
 
+    // A记录（4字节）或AAAA记录（16字节）且为IN类别
+    private boolean isAddressRecord(int record) {
+        if (getRecordClass(record) != 1) {
+            return false;
+        }
+        int type = getRecordType(record);
+        int length = getRecordDataLength(record);
+        return (type == DNSRecordType.A && length == 4) || (type == DNSRecordType.AAAA && length == 16);
+    }
 
+    private String formatAddress(int record) {
+        if (getRecordDataLength(record) == 4) {
+            int address = getIPv4Address(record);
+            return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "."
+                    + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+        }
+        try {
+            return getInetAddress(record).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);// 长度已校验为16字节，不会发生
+        }
+    }
 
-}
+    // 从问题域名出发，沿回答部分中的CNAME记录找到最终的规范名称；没有CNAME时即为问题域名
+    public String getCanonicalName() {
+        String name = getQuestionName();
+        if (name == null) {
+            return null;
+        }
+        for (int hop = 0; hop < MAX_CNAME_CHAIN; hop++) {
+            String target = null;
+            for (int i = getSectionStart(SECTION_ANSWER); i < getSectionEnd(SECTION_ANSWER); i++) {
+                if (getRecordType(i) == DNSRecordType.CNAME && getRecordName(i).equalsIgnoreCase(name)) {
+                    target = readName(getRecordDataOffset(i));
+                    break;
+                }
+            }
+            if (target == null) {
+                return name;
+            }
+            name = target;
+        }
+        return name;
+    }
 
+    // 回答部分中属于规范名称、类型为type的记录内容（已跟随应答内的CNAME链；查询CNAME时取问题域名自身的记录）
+    public List<String> getAnswerData(int type) {
+        String owner = type == DNSRecordType.CNAME ? getQuestionName() : getCanonicalName();
+        List<String> data = new ArrayList<>();
+        if (owner == null) {
+            return data;
+        }
+        for (int i = getSectionStart(SECTION_ANSWER); i < getSectionEnd(SECTION_ANSWER); i++) {
+            if (getRecordType(i) == type && getRecordName(i).equalsIgnoreCase(owner)) {
+                data.add(getRecordData(i));
+            }
+        }
+        return data;
+    }
 
+    // 按记录类型把RDATA格式化为文本（与区域文件的写法一致），未知类型或格式错误时按RFC 3597输出原始字节
+    public String getRecordData(int record) {
+        int offset = getRecordDataOffset(record);
+        int length = getRecordDataLength(record);
+        try {
+            switch (getRecordType(record)) {
+                case DNSRecordType.A:
+                case DNSRecordType.AAAA:
+                    if (isAddressRecord(record)) {
+                        return formatAddress(record);
+                    }
+                    break;
+                case DNSRecordType.NS:
+                case DNSRecordType.CNAME:
+                case DNSRecordType.PTR:
+                    return readName(offset) + ".";
+                case DNSRecordType.MX:
+                    return (buffer.getShort(offset) & 0xFFFF) + " " + readName(offset + 2) + ".";
+                case DNSRecordType.TXT:
+                    return formatCharacterStrings(offset, length);
+                case DNSRecordType.SOA: {
+                    int rnameOffset = skipDomainName(offset);
+                    int numbers = skipDomainName(rnameOffset);
+                    StringBuilder soa = new StringBuilder();
+                    soa.append(readName(offset)).append(". ").append(readName(rnameOffset)).append('.');
+                    for (int i = 0; i < 5; i++) {
+                        soa.append(' ').append(buffer.getInt(numbers + i * 4) & 0xFFFFFFFFL);
+                    }
+                    return soa.toString();
+                }
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // RDATA格式错误，按原始字节输出
+        }
+        StringBuilder raw = new StringBuilder("\\# ").append(length);
+        if (length > 0) {
+            raw.append(' ');
+            for (int i = 0; i < length; i++) {
+                raw.append(String.format("%02x", responseData[offset + i] & 0xFF));
+            }
+        }
+        return raw.toString();
+    }
+
+    // TXT记录由若干个带长度前缀的字符串组成，每个字符串加引号输出
+    private String formatCharacterStrings(int offset, int length) {
+        StringBuilder text = new StringBuilder();
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int stringLength = responseData[position] & 0xFF;
+            if (position + 1 + stringLength > end) {
+                throw new IndexOutOfBoundsException("TXT字符串超出记录长度");
+            }
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append('"');
+            for (int i = position + 1; i <= position + stringLength; i++) {
+                int c = responseData[i] & 0xFF;
+                if (c == '"' || c == '\\') {
+                    text.append('\\').append((char) c);
+                } else if (c < 0x20 || c > 0x7E) {
+                    text.append(String.format("\\%03d", c));
+                } else {
+                    text.append((char) c);
+                }
+            }
+            text.append('"');
+            position += 1 + stringLength;
+        }
+        return text.toString();
+    }
+
+    public int getMinTtl() {// 获取回答记录中最小的TTL（秒），没有回答记录时为-1
+        int minTtl = -1;
+        for (int i = getSectionStart(SECTION_ANSWER); i < getSectionEnd(SECTION_ANSWER); i++) {
+            int ttl = getRecordTtl(i);
+            if (minTtl < 0 || ttl < minTtl) {
+                minTtl = ttl;
+            }
+        }
+        return minTtl;
+    }
+
+    public int getNegativeTtl() {// 否定应答的缓存时间（取自授权部分SOA记录，RFC 2308），没有SOA时为-1
+        for (int i = getSectionStart(SECTION_AUTHORITY); i < getSectionEnd(SECTION_AUTHORITY); i++) {
+            int dataLength = getRecordDataLength(i);
+            if (getRecordType(i) == DNSRecordType.SOA && dataLength >= 4) { // 最后4字节为MINIMUM字段
+                int minimum = Math.max(buffer.getInt(getRecordDataOffset(i) + dataLength - 4), 0);
+                return Math.min(getRecordTtl(i), minimum);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// 批量解析结果的表格模型：只保存结果对象本身，单元格在绘制时才取值，
+// 追加时按批通知表格，使几万行的结果也只需少量重绘
+class DNSResultTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"域名", "状态", "地址", "尝试次数", "耗时(ms)"};
+
+    private final List<DNSBatchResolver.BatchResult> rows = new ArrayList<>();// 按完成顺序排列的结果
+
+    //方法
+    // 追加一批结果（须在事件分发线程上调用）
+    public void addAll(List<DNSBatchResolver.BatchResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        int first = rows.size();
+        rows.addAll(results);
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    public void clear() {
+        rows.clear();
+        fireTableDataChanged();
+    }
+
+    public DNSBatchResolver.BatchResult getRow(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column >= 3 ? Long.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        DNSBatchResolver.BatchResult result = rows.get(row);
+        switch (column) {
+            case 0: return result.domain();
+            case 1: return result.status();
+            case 2: return String.join(" ", result.addresses());
+            case 3: return (long) result.attempts();
+            default: return result.elapsedMillis();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// TCP查询通道：每个上游保持一条持久连接，多个查询流水线式地写入同一连接，
+// 由该连接的读取线程按事务ID分发应答，避免截断重试时每次都重新握手（RFC 7766）。
+// 连接在不持有共享锁的情况下建立，一个无响应的上游不会拖住到其他上游的查询；
+// 连接被对端关闭时，尚未收到应答的查询换一条新连接重试一次
+class DNSTcpTransport implements Closeable {
+    private final long timeoutMillis;// 单次查询的超时时间（毫秒）
+    private final ConcurrentHashMap<InetSocketAddress, CompletableFuture<Connection>> connections;// 上游地址 -> 持久连接（建立中或已建立）
+    private final ExecutorService executor;// 建立连接和写入查询的线程（虚拟线程）
+    private volatile boolean closed;
+    private final LongAdder queriesSent = new LongAdder();// 发出的查询数
+    private final LongAdder bytesSent = new LongAdder();// 发出的字节数（含长度前缀）
+    private final LongAdder bytesReceived = new LongAdder();// 收到的字节数（含长度前缀）
+
+    //方法
+    public DNSTcpTransport(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.connections = new ConcurrentHashMap<>();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // 一条在途的TCP查询；retry表示连接出错时还可以换连接重试
+    private record PendingQuery(String domain, short type, CompletableFuture<DNSResponse> result, boolean retry) {
+    }
+
+    // 通过TCP向指定服务器发送查询；发送前连接已断开，或发出后连接被对端关闭时，换一条新连接重试一次
+    public CompletableFuture<DNSResponse> query(String domain, short type, InetSocketAddress server) {
+        CompletableFuture<DNSResponse> result = new CompletableFuture<>();
+        PendingQuery query = new PendingQuery(domain, type, result, true);
+        executor.execute(() -> send(server, query));
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(InetSocketAddress server, PendingQuery query) {
+        if (query.result().isDone()) {
+            return;// 已超时
+        }
+        Connection connection = null;
+        try {
+            connection = getConnection(server);
+            connection.send(query);
+        } catch (IllegalArgumentException e) {
+            query.result().completeExceptionally(e);// 域名不合法，与连接无关
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close(e);
+            }
+            retry(server, query, e);
+        }
+    }
+
+    // 换一条新连接重试（每个查询最多一次），不能重试时以错误结束
+    private void retry(InetSocketAddress server, PendingQuery query, Exception error) {
+        if (query.retry() && !closed) {
+            executor.execute(() -> send(server, new PendingQuery(query.domain(), query.type(), query.result(), false)));
+        } else {
+            query.result().completeExceptionally(error);
+        }
+    }
+
+    // 获取到指定服务器的连接，已断开时重新建立。建立连接不持有任何共享锁，
+    // 同一上游的并发请求等待同一次建立，其他上游不受影响
+    private Connection getConnection(InetSocketAddress server) throws IOException {
+        while (true) {
+            if (closed) {
+                throw new IOException("TCP通道已关闭");
+            }
+            CompletableFuture<Connection> existing = connections.get(server);
+            if (existing == null) {
+                CompletableFuture<Connection> connecting = new CompletableFuture<>();
+                if (connections.putIfAbsent(server, connecting) != null) {
+                    continue;
+                }
+                try {
+                    Connection connection = new Connection(server);
+                    connecting.complete(connection);
+                    if (closed) {
+                        connection.close(new IOException("TCP通道已关闭"));
+                    }
+                    return connection;
+                } catch (IOException e) {
+                    connections.remove(server, connecting);// 下一次查询重新尝试建立
+                    connecting.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            Connection connection;
+            try {
+                connection = existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());// 与正在建立的请求一起失败
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待TCP连接时被中断", e);
+            }
+            if (connection.isOpen()) {
+                return connection;
+            }
+            connections.remove(server, existing);// 已断开，重新建立
+        }
+    }
+
+    // 当前保持的连接数
+    public int getConnectionCount() {
+        int count = 0;
+        for (CompletableFuture<Connection> connection : connections.values()) {
+            if (connection.isDone() && !connection.isCompletedExceptionally() && connection.join().isOpen()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getQueriesSent() {// 发出的查询数
+        return queriesSent.sum();
+    }
+
+    public long getBytesSent() {// 发出的字节数
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {// 收到的字节数
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        IOException error = new IOException("TCP通道已关闭");
+        for (CompletableFuture<Connection> connection : connections.values()) {
+            connection.thenAccept(established -> established.close(error));// 正在建立的连接建立后立即关闭
+        }
+        connections.clear();
+        executor.shutdown();
+    }
+
+    // 到一个上游的持久连接
+    private final class Connection {
+        final InetSocketAddress server;
+        final SocketChannel channel;
+        final ConcurrentHashMap<Integer, PendingQuery> pending = new ConcurrentHashMap<>();// 在途查询
+        final ReentrantLock writeLock = new ReentrantLock();// 保证每条报文完整写出
+        volatile boolean open = true;
+
+        Connection(InetSocketAddress server) throws IOException {
+            this.server = server;
+            this.channel = SocketChannel.open();
+            try {
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().connect(server, (int) timeoutMillis);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            Thread.ofVirtual().name("dns-tcp-reader-" + server).start(this::readLoop);
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        // 分配事务ID并写入带2字节长度前缀的查询报文
+        void send(PendingQuery query) throws IOException {
+            // 先编码（域名不合法时在登记之前失败），再回填分配到的事务ID
+            DNSPacket packet = new DNSPacket(query.domain(), (short) 0, query.type(), 0);
+            ByteBuffer buffer = ByteBuffer.allocate(2 + packet.getEncodedLength());
+            buffer.putShort((short) packet.getEncodedLength());
+            packet.writeTo(buffer);
+            buffer.flip();
+
+            int id;
+            do {
+                id = ThreadLocalRandom.current().nextInt(65536);
+            } while (pending.putIfAbsent(id, query) != null);
+            final int transactionId = id;
+            query.result().whenComplete((response, error) -> pending.remove(transactionId, query));
+            buffer.putShort(2, (short) transactionId);
+
+            writeLock.lock();
+            try {
+                if (!open) {
+                    throw new IOException("连接已关闭");
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                queriesSent.increment();
+                bytesSent.add(buffer.limit());
+            } catch (IOException e) {
+                pending.remove(transactionId, query);// 未发出的查询由调用方换连接重试
+                throw e;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        // 读取循环：逐条读出应答并按事务ID分发
+        void readLoop() {
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(2);
+            try {
+                while (open) {
+                    lengthBuffer.clear();
+                    readFully(lengthBuffer);
+                    ByteBuffer message = ByteBuffer.allocate(lengthBuffer.getShort(0) & 0xFFFF);
+                    readFully(message);
+
+                    byte[] responseData = message.array();
+                    bytesReceived.add(2 + responseData.length);
+                    if (responseData.length < DNSPacket.HEADER_SIZE) {
+                        continue;
+                    }
+                    int id = ((responseData[0] & 0xFF) << 8) | (responseData[1] & 0xFF);
+                    PendingQuery query = pending.remove(id);
+                    if (query != null) {
+                        query.result().complete(new DNSResponse(responseData));
+                    }
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("服务器关闭了TCP连接");
+                }
+            }
+        }
+
+        // 关闭连接；尚未收到应答的查询换新连接重试一次，已重试过的以错误结束
+        void close(Exception error) {
+            open = false;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略关闭时的错误
+            }
+            for (Map.Entry<Integer, PendingQuery> entry : pending.entrySet()) {
+                if (pending.remove(entry.getKey(), entry.getValue())) {// 与读取线程的分发互斥，每个查询只处理一次
+                    retry(server, entry.getValue(), error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.example;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// 上游DNS服务器：维护平滑往返时延（SRTT/RTTVAR，算法同RFC 6298）和健康状态，并统计时延分布和失败次数
+class DNSUpstream implements DNSUpstreamMBean {
+    private static final long INITIAL_HEDGE_MILLIS = 200;// 尚无时延样本时的对冲等待时间
+    private static final long MIN_HEDGE_MILLIS = 10;// 对冲等待时间下限
+    private static final int FAILURES_BEFORE_DOWN = 3;// 连续失败该次数后标记为不健康
+    private static final long INITIAL_BACKOFF_MILLIS = 5000;// 首次不健康的屏蔽时长
+    private static final long MAX_BACKOFF_MILLIS = 60000;// 屏蔽时长上限
+
+    private final InetSocketAddress address;// 服务器地址
+    private double srttMillis = -1;// 平滑往返时延（毫秒），-1表示尚无样本
+    private double rttVarMillis;// 往返时延的平均偏差（毫秒）
+    private int consecutiveFailures;// 连续失败次数
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;// 当前屏蔽时长
+    private long downUntil;// 在此时间之前视为不健康（毫秒时间戳）
+    private final DNSLatencyHistogram latency = new DNSLatencyHistogram();// 往返时延分布
+    private final LongAdder queries = new LongAdder();// 发出的查询数
+    private final LongAdder failures = new LongAdder();// 失败次数
+    private final LongAdder timeouts = new LongAdder();// 超时次数
+
+    //方法
+    public DNSUpstream(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    // 记录向该上游发出了一次查询
+    public void recordQuery() {
+        queries.increment();
+    }
+
+    // 记录一次成功的查询及其往返时延
+    public void recordSuccess(long rttNanos) {
+        latency.record(rttNanos);
+        updateRtt(rttNanos);
+    }
+
+    private synchronized void updateRtt(long rttNanos) {
+        double rtt = rttNanos / 1_000_000.0;
+        if (srttMillis < 0) {
+            srttMillis = rtt;
+            rttVarMillis = rtt / 2;
+        } else {
+            rttVarMillis = 0.75 * rttVarMillis + 0.25 * Math.abs(srttMillis - rtt);
+            srttMillis = 0.875 * srttMillis + 0.125 * rtt;
+        }
+        consecutiveFailures = 0;
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+        downUntil = 0;
+    }
+
+    // 记录一次超时或发送失败；连续失败过多时屏蔽一段时间，屏蔽时长逐次翻倍
+    public void recordFailure(long nowMillis) {
+        recordFailure(nowMillis, null);
+    }
+
+    public void recordFailure(long nowMillis, Throwable error) {
+        failures.increment();
+        if (error instanceof TimeoutException) {
+            timeouts.increment();
+        }
+        updateBackoff(nowMillis);
+    }
+
+    private synchronized void updateBackoff(long nowMillis) {
+        if (++consecutiveFailures >= FAILURES_BEFORE_DOWN && nowMillis >= downUntil) {
+            downUntil = nowMillis + backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // 是否健康（屏蔽期过后允许再次尝试）
+    public synchronized boolean isHealthy(long nowMillis) {
+        return nowMillis >= downUntil;
+    }
+
+    // 平滑往返时延（毫秒），尚无样本时返回-1
+    @Override
+    public synchronized double getSrttMillis() {
+        return srttMillis;
+    }
+
+    // 尾部时延阈值：超过该时间仍未收到应答时，向下一个上游发送对冲查询
+    public synchronized long getHedgeDelayMillis(long maxMillis) {
+        if (srttMillis < 0) {
+            return Math.min(INITIAL_HEDGE_MILLIS, maxMillis);
+        }
+        long threshold = (long) Math.ceil(srttMillis + 4 * rttVarMillis);
+        return Math.max(MIN_HEDGE_MILLIS, Math.min(threshold, maxMillis));
+    }
+
+    public DNSLatencyHistogram getLatency() {// 往返时延分布
+        return latency;
+    }
+
+    @Override
+    public String getServer() {
+        return toString();
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return isHealthy(System.currentTimeMillis());
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getLatencyP95Millis() {
+        return latency.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+}
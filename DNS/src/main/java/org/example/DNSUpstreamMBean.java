@@ -0,0 +1,22 @@
+package org.example;
+
+// 单个上游服务器的JMX监控接口
+public interface DNSUpstreamMBean {
+    String getServer();// 上游地址（IP:端口）
+
+    long getQueries();// 发往该上游的UDP查询数
+
+    long getFailures();// 失败次数（含超时）
+
+    long getTimeouts();// 超时次数
+
+    boolean isHealthy();// 当前是否健康
+
+    double getSrttMillis();// 平滑往返时延（毫秒），尚无样本时为-1
+
+    double getLatencyP50Millis();// 往返时延中位数（毫秒）
+
+    double getLatencyP95Millis();// 往返时延95百分位（毫秒）
+
+    double getLatencyP99Millis();// 往返时延99百分位（毫秒）
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// 上游服务器列表：按健康状态和平滑时延排序，供客户端选择首选服务器和对冲目标
+class DNSUpstreamPool {
+    private final List<DNSUpstream> upstreams;// 全部上游服务器（按配置顺序）
+
+    //方法
+    public DNSUpstreamPool(List<InetSocketAddress> addresses) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个上游DNS服务器");
+        }
+        this.upstreams = new ArrayList<>();
+        for (InetSocketAddress address : addresses) {
+            upstreams.add(new DNSUpstream(address));
+        }
+    }
+
+    // 解析"IP[:端口],IP[:端口]"格式的服务器列表，默认端口53
+    public static DNSUpstreamPool parse(String servers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String server : servers.split(",")) {
+            server = server.trim();
+            if (server.isEmpty()) {
+                continue;
+            }
+            int colon = server.lastIndexOf(':');
+            if (colon > 0 && server.indexOf(':') == colon) {
+                addresses.add(new InetSocketAddress(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1))));
+            } else {
+                addresses.add(new InetSocketAddress(server, 53));
+            }
+        }
+        return new DNSUpstreamPool(addresses);
+    }
+
+    public List<DNSUpstream> getUpstreams() {
+        return upstreams;
+    }
+
+    // 按优先级排序：健康的在前，其中无样本的按配置顺序排在已测量的之前以便获得样本，
+    // 已测量的按平滑时延从小到大；不健康的服务器排在最后，仅作兜底
+    public List<DNSUpstream> ranked(long nowMillis) {
+        // 先取快照再排序，避免排序过程中时延被并发更新
+        List<Ranking> rankings = new ArrayList<>(upstreams.size());
+        for (DNSUpstream upstream : upstreams) {
+            rankings.add(new Ranking(upstream, upstream.isHealthy(nowMillis), upstream.getSrttMillis()));
+        }
+        rankings.sort(Comparator.comparing((Ranking ranking) -> !ranking.healthy())
+                .thenComparingDouble(Ranking::srttMillis));
+
+        List<DNSUpstream> ranked = new ArrayList<>(rankings.size());
+        for (Ranking ranking : rankings) {
+            ranked.add(ranking.upstream());
+        }
+        return ranked;
+    }
+
+    // 排序用的状态快照
+    private record Ranking(DNSUpstream upstream, boolean healthy, double srttMillis) {
+    }
+}
@@ -0,0 +1,204 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSBatchResolverTest {
+
+    private static BufferedReader names(int count) {
+        StringBuilder input = new StringBuilder("# 注释行\n\n");
+        for (int i = 0; i < count; i++) {
+            input.append("host").append(i).append(".example.com\n");
+        }
+        return new BufferedReader(new StringReader(input.toString()));
+    }
+
+    @Test
+    @DisplayName("测试批量解析全部域名并以NDJSON输出")
+    void testResolveAllNdjson() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 3});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 32, 1, DNSBatchResolver.OutputFormat.NDJSON);
+
+            StringWriter output = new StringWriter();
+            long count = batch.resolveAll(names(2000), output);
+
+            String[] lines = output.toString().split("\n");
+            assertEquals(2000, count, "应跳过空行和注释");
+            assertEquals(2000, lines.length, "每个域名输出一行");
+
+            Set<String> domains = new HashSet<>();
+            for (String line : lines) {
+                assertTrue(line.contains("\"status\":\"NOERROR\""), line);
+                assertTrue(line.contains("\"addresses\":[\"10.1.2.3\"]"), line);
+                domains.add(line.substring(0, line.indexOf(",\"status\"")));
+            }
+            assertEquals(2000, domains.size(), "每个域名恰好输出一次");
+        }
+    }
+
+    @Test
+    @DisplayName("测试超时的域名按重试次数重试后输出TIMEOUT")
+    void testTimeoutWithRetries() throws Exception {
+        try (DNSQueryEngine engine = new DNSQueryEngine(100)) {
+            InetSocketAddress silent = new InetSocketAddress(InetAddress.getLoopbackAddress(), 9);
+            DNSClient client = new DNSClient(engine, new DNSCache(100), silent);
+            DNSBatchResolver batch = new DNSBatchResolver(client, 4, 2, DNSBatchResolver.OutputFormat.CSV);
+
+            StringWriter output = new StringWriter();
+            batch.resolveAll(names(3), output);
+
+            String[] lines = output.toString().split("\n");
+            assertEquals("domain,status,addresses,attempts,elapsed_ms", lines[0]);
+            assertEquals(4, lines.length);
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].split(",", -1);
+                assertEquals("TIMEOUT", fields[1]);
+                assertEquals("3", fields[3], "首次查询加两次重试");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试结果交给接收方，并按批追加到表格模型")
+    void testResultSinkAndTableModel() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 4});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 16, 1, DNSBatchResolver.OutputFormat.CSV);
+
+            List<DNSBatchResolver.BatchResult> results = new ArrayList<>();
+            long count = batch.resolveAll(names(500), results::add);
+            assertEquals(500, count);
+            assertEquals(500, results.size());
+            assertEquals(List.of("10.1.2.4"), results.get(0).addresses());
+
+            DNSResultTableModel model = new DNSResultTableModel();
+            AtomicInteger events = new AtomicInteger();
+            model.addTableModelListener(event -> events.incrementAndGet());
+            model.addAll(results.subList(0, 200));
+            model.addAll(results.subList(200, 500));
+            assertEquals(500, model.getRowCount());
+            assertEquals(2, events.get(), "每批只通知一次");
+            assertEquals("NOERROR", model.getValueAt(499, 1));
+            assertEquals("10.1.2.4", model.getValueAt(0, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("测试接收方抛出运行时异常时批量解析结束并抛出该异常，而不是一直等待")
+    void testSinkFailure() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 7});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 8, 1, DNSBatchResolver.OutputFormat.CSV);
+
+            AtomicInteger accepted = new AtomicInteger();
+            IllegalStateException error = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                    assertThrows(IllegalStateException.class, () -> batch.resolveAll(names(100), result -> {
+                        if (accepted.incrementAndGet() == 5) {
+                            throw new IllegalStateException("sink failed");
+                        }
+                    })));
+            assertEquals("sink failed", error.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("测试应答记录无法解码时输出ERROR结果，批量解析正常结束")
+    void testMalformedAnswer() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 8});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            server.setSelfPointerOwner(true);
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 4, 1, DNSBatchResolver.OutputFormat.CSV,
+                    DNSRecordType.PTR, 0);
+
+            List<DNSBatchResolver.BatchResult> results = new ArrayList<>();
+            long count = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                    batch.resolveAll(new BufferedReader(new StringReader("192.0.2.0/30\n")), results::add));
+            assertEquals(4, count);
+            assertEquals(4, results.size());
+            for (DNSBatchResolver.BatchResult result : results) {
+                assertEquals("ERROR", result.status());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试PTR模式下CIDR地址块逐个展开查询，结果保留原IP地址")
+    void testPtrSweep() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 5});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 256, 1, DNSBatchResolver.OutputFormat.CSV,
+                    DNSRecordType.PTR, 0);
+
+            List<DNSBatchResolver.BatchResult> results = new ArrayList<>();
+            String input = "10.20.37.200/20\n192.0.2.9\n10.0.0.0/99\n";
+            long count = batch.resolveAll(new BufferedReader(new StringReader(input)), results::add);
+
+            assertEquals(4096 + 2, count, "/20展开为4096个地址，另有一个单独地址和一个无效地址块");
+            Set<String> addresses = new HashSet<>();
+            for (DNSBatchResolver.BatchResult result : results) {
+                addresses.add(result.domain());
+            }
+            assertEquals(4098, addresses.size());
+            assertTrue(addresses.contains("10.20.32.0") && addresses.contains("10.20.47.255"), "主机位应清零");
+            DNSBatchResolver.BatchResult single = results.stream()
+                    .filter(result -> result.domain().equals("192.0.2.9")).findFirst().orElseThrow();
+            assertEquals("NOERROR", single.status());
+            assertEquals(List.of("9.2.0.192.in-addr.arpa."), single.addresses());
+            assertEquals(1, results.stream().filter(result -> result.status().equals("INVALID")).count());
+            assertEquals(4097, results.stream().filter(result -> result.status().equals("NOERROR")).count());
+        }
+    }
+
+    @Test
+    @DisplayName("测试限速时发送速率不超过设定值")
+    void testRateLimit() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 1, 2, 6});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(10000), server.getAddress());
+            DNSBatchResolver batch = new DNSBatchResolver(client, 64, 1, DNSBatchResolver.OutputFormat.CSV,
+                    DNSRecordType.A, 1000);
+
+            long start = System.nanoTime();
+            batch.resolveAll(names(600), result -> { });
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMillis >= 450, "1000次/秒发送600个查询（突发100个）至少需要0.5秒，实际 " + elapsedMillis + "ms");
+        }
+    }
+
+    @Test
+    @DisplayName("测试CIDR地址块的解析与IPv6展开")
+    void testCidrRange() {
+        assertEquals(1, DNSCidrRange.parse("192.0.2.1").size());
+        assertEquals(65536, DNSCidrRange.parse("172.16.9.9/16").size());
+        Iterator<String> v6 = DNSCidrRange.parse("2001:db8::ff/126").iterator();
+        assertEquals("2001:db8:0:0:0:0:0:fc", v6.next());
+        v6.next();
+        v6.next();
+        assertEquals("2001:db8:0:0:0:0:0:ff", v6.next());
+        assertFalse(v6.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> DNSCidrRange.parse("2001:db8::/64"), "超过2^32个地址");
+        assertThrows(IllegalArgumentException.class, () -> DNSCidrRange.parse("example.com/24"));
+        assertThrows(IllegalArgumentException.class, () -> DNSCidrRange.parse("10.0.0.0/33"));
+    }
+}
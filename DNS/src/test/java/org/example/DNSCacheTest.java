@@ -0,0 +1,188 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);// 可控的测试时钟（毫秒）
+
+    private static DNSResponse answer(String name, int ttl) {
+        return new DNSResponse(new DNSMessageBuilder(1, 0x8180)
+                .question(name, 1)
+                .answer(name, 1, ttl, new byte[]{10, 0, 0, 1})
+                .build());
+    }
+
+    private static DNSCache.Key key(String name) {
+        return DNSCache.Key.of(name, (short) 1, (short) 1);
+    }
+
+    @Test
+    @DisplayName("测试按TTL缓存正常应答，过期后不再命中")
+    void testPositiveTtl() {
+        DNSCache cache = new DNSCache(100, now::get);
+        DNSResponse response = answer("example.com", 30);
+        cache.put(key("Example.COM."), response);
+
+        assertSame(response, cache.get(key("example.com")), "TTL内应命中（域名不区分大小写）");
+        now.addAndGet(30_000);
+        assertNull(cache.get(key("example.com")), "TTL过后不应命中");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("测试NXDOMAIN按SOA的MINIMUM缓存")
+    void testNegativeCaching() {
+        DNSCache cache = new DNSCache(100, now::get);
+        DNSResponse nxdomain = new DNSResponse(new DNSMessageBuilder(1, 0x8183)
+                .question("missing.example.com", 1)
+                .authority("example.com", 6, 3600, DNSMessageBuilder.soa("ns.example.com", "admin.example.com", 60))
+                .build());
+
+        assertEquals(3, nxdomain.getResponseCode());
+        assertEquals(60, DNSCache.cacheTtl(nxdomain), "否定应答取SOA TTL与MINIMUM中的较小值");
+
+        cache.put(key("missing.example.com"), nxdomain);
+        now.addAndGet(59_000);
+        assertSame(nxdomain, cache.get(key("missing.example.com")));
+        now.addAndGet(1_000);
+        assertNull(cache.get(key("missing.example.com")));
+    }
+
+    @Test
+    @DisplayName("测试不可缓存的应答被忽略")
+    void testUncacheable() {
+        DNSCache cache = new DNSCache(100, now::get);
+        cache.put(key("zero.example.com"), answer("zero.example.com", 0));
+        cache.put(key("fail.example.com"), new DNSResponse(new DNSMessageBuilder(1, 0x8182)
+                .question("fail.example.com", 1).build()));
+
+        assertEquals(0, cache.size(), "TTL为0和SERVFAIL的应答不应缓存");
+    }
+
+    @Test
+    @DisplayName("测试超出容量时淘汰最久未使用的条目")
+    void testLruEviction() {
+        DNSCache cache = new DNSCache(2, now::get);
+        cache.put(key("a.com"), answer("a.com", 300));
+        cache.put(key("b.com"), answer("b.com", 300));
+        assertNotNull(cache.get(key("a.com")));// 访问a，使b成为最久未使用
+        cache.put(key("c.com"), answer("c.com", 300));
+
+        assertNotNull(cache.get(key("a.com")));
+        assertNull(cache.get(key("b.com")), "b应被淘汰");
+        assertNotNull(cache.get(key("c.com")));
+    }
+
+    @Test
+    @DisplayName("测试热门条目临近过期时只触发一次预取")
+    void testPrefetch() {
+        DNSCache cache = new DNSCache(100, now::get);
+        cache.put(key("hot.com"), answer("hot.com", 100));
+        List<DNSCache.Key> prefetched = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            cache.get(key("hot.com"), prefetched::add);
+        }
+        assertTrue(prefetched.isEmpty(), "离过期还早时不应预取");
+
+        now.addAndGet(95_000);
+        cache.get(key("hot.com"), prefetched::add);
+        cache.get(key("hot.com"), prefetched::add);
+        assertEquals(List.of(key("hot.com")), prefetched, "临近过期时应只预取一次");
+    }
+
+    @Test
+    @DisplayName("测试缓存快照跨重启恢复，跳过已过期的条目，条目在首次查询时才取回")
+    void testSnapshotRoundTrip(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        DNSCache cache = new DNSCache(100, now::get);
+        cache.put(key("short.example.com"), answer("short.example.com", 10));
+        cache.put(key("long.example.com"), answer("long.example.com", 300));
+        assertEquals(2, DNSCacheSnapshot.write(cache, file));
+
+        now.addAndGet(20_000);// 重启前已过去20秒，短TTL的条目已过期
+        DNSCacheSnapshot snapshot = DNSCacheSnapshot.open(file, now.get());
+        assertEquals(1, snapshot.size(), "已过期的条目在建立索引时跳过");
+
+        DNSCache restarted = new DNSCache(100, now::get);
+        restarted.setSnapshot(snapshot);
+        assertEquals(0, restarted.size(), "条目在查询前不解码");
+        DNSResponse restored = restarted.get(key("long.example.com"));
+        assertEquals(List.of("10.0.0.1"), restored.getIPAddresses());
+        assertEquals(1, restarted.size());
+        assertEquals(0, snapshot.size(), "每个条目只取回一次");
+        assertFalse(restarted.hasSnapshot(), "全部取回后应释放快照");
+        assertNull(restarted.get(key("short.example.com")));
+
+        now.addAndGet(280_000);
+        assertNull(restarted.get(key("long.example.com")), "恢复的条目保留原来的过期时间");
+
+        assertNull(DNSCacheSnapshot.open(directory.resolve("missing.bin"), now.get()), "没有快照文件时返回null");
+    }
+
+    @Test
+    @DisplayName("测试未取回的快照条目在下次保存时保留，文件末尾损坏时只加载完整的条目")
+    void testSnapshotCarryOverAndTruncation(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        DNSCache cache = new DNSCache(100, now::get);
+        cache.put(key("a.example.com"), answer("a.example.com", 300));
+        cache.put(key("b.example.com"), answer("b.example.com", 300));
+        DNSCacheSnapshot.write(cache, file);
+
+        DNSCache restarted = new DNSCache(100, now::get);
+        restarted.setSnapshot(DNSCacheSnapshot.open(file, now.get()));
+        restarted.get(key("a.example.com"));
+        restarted.put(key("c.example.com"), answer("c.example.com", 300));
+        assertEquals(3, DNSCacheSnapshot.write(restarted, file), "未被查询过的b也应写入新快照");
+        assertTrue(restarted.hasSnapshot());
+        long savedAt = now.get();
+        now.addAndGet(301_000);
+        assertEquals(0, restarted.export().size());
+        assertFalse(restarted.hasSnapshot(), "剩余条目都过期后应释放快照");
+
+        byte[] data = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(data, data.length - 5));
+        assertEquals(2, DNSCacheSnapshot.open(file, savedAt).size(), "被截断的最后一个条目应被丢弃");
+    }
+
+    @Test
+    @DisplayName("测试重启-保存-重启：加载快照后不占用文件，可以原地替换并再次加载")
+    void testSnapshotRestartSaveRestart(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        DNSCache cache = new DNSCache(100, now::get);
+        cache.put(key("a.example.com"), answer("a.example.com", 300));
+        DNSCacheSnapshot.write(cache, file);
+
+        for (int restart = 1; restart <= 3; restart++) {
+            DNSCache restarted = new DNSCache(100, now::get);
+            restarted.setSnapshot(DNSCacheSnapshot.open(file, now.get()));
+            Files.copy(file, directory.resolve("copy.bin"), StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(file);// 文件不应被占用（Windows上存在映射时无法删除或替换）
+            Files.move(directory.resolve("copy.bin"), file);
+
+            String name = "r" + restart + ".example.com";
+            restarted.put(key(name), answer(name, 300));
+            assertEquals(restart + 1, DNSCacheSnapshot.write(restarted, file), "之前各次的条目都应保留");
+        }
+
+        DNSCache last = new DNSCache(100, now::get);
+        last.setSnapshot(DNSCacheSnapshot.open(file, now.get()));
+        for (String name : List.of("a.example.com", "r1.example.com", "r2.example.com", "r3.example.com")) {
+            assertEquals(List.of("10.0.0.1"), last.get(key(name)).getIPAddresses(), name);
+        }
+    }
+}
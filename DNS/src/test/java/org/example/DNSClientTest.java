@@ -0,0 +1,184 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSClientTest {
+
+    @Test
+    @DisplayName("测试首选上游丢包时对冲查询在阈值后由下一个上游应答")
+    void testHedgedQuery() throws Exception {
+        try (LocalDNSServer lossy = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             LocalDNSServer healthy = new LocalDNSServer(new byte[]{10, 0, 0, 2});
+             DNSQueryEngine engine = new DNSQueryEngine(5000)) {
+            lossy.setDropRate(1.0);
+            DNSUpstreamPool pool = new DNSUpstreamPool(List.of(lossy.getAddress(), healthy.getAddress()));
+            DNSClient client = new DNSClient(engine, new DNSCache(100), pool);
+
+            long start = System.nanoTime();
+            DNSResponse response = client.resolve("example.com").get(5, TimeUnit.SECONDS);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(List.of("10.0.0.2"), response.getIPAddresses(), "应由第二个上游应答");
+            assertEquals(1, lossy.getReceivedCount(), "首选上游应先收到查询");
+            assertTrue(elapsedMillis < 2000, "对冲查询不应等待完整的超时时间，实际 " + elapsedMillis + "ms");
+        }
+    }
+
+    @Test
+    @DisplayName("测试客户端逐渐优先选择时延更低的上游")
+    void testPrefersFastestUpstream() throws Exception {
+        try (LocalDNSServer slow = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             LocalDNSServer fast = new LocalDNSServer(new byte[]{10, 0, 0, 2});
+             DNSQueryEngine engine = new DNSQueryEngine(5000)) {
+            slow.setDelayMillis(100);
+            DNSUpstreamPool pool = new DNSUpstreamPool(List.of(slow.getAddress(), fast.getAddress()));
+            DNSClient client = new DNSClient(engine, new DNSCache(100), pool);
+
+            for (int i = 0; i < 10; i++) {
+                client.resolve("host" + i + ".example.com").get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(fast.getAddress(), pool.ranked(System.currentTimeMillis()).get(0).getAddress());
+            assertTrue(fast.getReceivedCount() >= 8, "大部分查询应发往较快的上游");
+        }
+    }
+
+    @Test
+    @DisplayName("测试上游快速返回REFUSED时按失败处理并转移到健康上游，全部失败时才返回错误应答")
+    void testRefusedUpstreamFailsOver() throws Exception {
+        try (LocalDNSServer refusing = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             LocalDNSServer healthy = new LocalDNSServer(new byte[]{10, 0, 0, 2});
+             DNSQueryEngine engine = new DNSQueryEngine(5000)) {
+            refusing.setResponseCode(5);
+            healthy.setDelayMillis(5);
+            DNSUpstreamPool pool = new DNSUpstreamPool(List.of(refusing.getAddress(), healthy.getAddress()));
+            DNSClient client = new DNSClient(engine, new DNSCache(100), pool);
+
+            for (int i = 0; i < 50; i++) {
+                DNSResponse response = client.resolve("host" + i + ".example.com").get(5, TimeUnit.SECONDS);
+                assertEquals(0, response.getResponseCode(), "REFUSED应转移到健康的上游");
+                assertEquals(List.of("10.0.0.2"), response.getIPAddresses());
+            }
+            assertEquals(healthy.getAddress(), pool.ranked(System.currentTimeMillis()).get(0).getAddress(),
+                    "快速失败的上游不应排在前面");
+            assertTrue(refusing.getReceivedCount() < 10, "拒绝查询的上游应被降级，实际 " + refusing.getReceivedCount());
+
+            healthy.setResponseCode(2);
+            DNSResponse failed = client.resolve("all-fail.example.com").get(5, TimeUnit.SECONDS);
+            assertTrue(failed.getResponseCode() == 2 || failed.getResponseCode() == 5, "全部上游失败时返回错误应答");
+        }
+    }
+
+    @Test
+    @DisplayName("测试无法编码的域名立即失败，不发送查询，也不计入上游失败")
+    void testInvalidNameIsLocalError() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             DNSQueryEngine engine = new DNSQueryEngine(5000)) {
+            DNSUpstreamPool pool = new DNSUpstreamPool(List.of(server.getAddress()));
+            DNSClient client = new DNSClient(engine, new DNSCache(100), pool);
+
+            String longLabel = "a".repeat(64) + ".example.com";
+            String longName = "abcdefghi.".repeat(30) + "com";
+            for (String name : List.of(longLabel, longName, "例子.example.com")) {
+                ExecutionException error = assertThrows(ExecutionException.class,
+                        () -> client.resolve(name).get(5, TimeUnit.SECONDS), name);
+                assertInstanceOf(IllegalArgumentException.class, error.getCause());
+            }
+            DNSUpstream upstream = pool.getUpstreams().get(0);
+            assertEquals(0, engine.getQueriesSent());
+            assertEquals(0, upstream.getFailures());
+            assertTrue(upstream.isHealthy());
+            assertEquals(List.of("10.0.0.1"), client.resolve("valid.example.com").get(5, TimeUnit.SECONDS).getIPAddresses());
+        }
+    }
+
+    @Test
+    @DisplayName("测试连续失败后上游被屏蔽，屏蔽期过后恢复")
+    void testUpstreamHealth() {
+        DNSUpstream upstream = new DNSUpstream(new InetSocketAddress(InetAddress.getLoopbackAddress(), 53));
+        long now = 1_000_000;
+
+        upstream.recordFailure(now);
+        upstream.recordFailure(now);
+        assertTrue(upstream.isHealthy(now), "两次失败后仍视为健康");
+        upstream.recordFailure(now);
+        assertFalse(upstream.isHealthy(now), "连续三次失败后应被屏蔽");
+        assertTrue(upstream.isHealthy(now + 5000), "屏蔽期过后应允许再次尝试");
+
+        upstream.recordSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(upstream.isHealthy(now));
+        assertEquals(20.0, upstream.getSrttMillis(), 0.001);
+        assertEquals(60, upstream.getHedgeDelayMillis(5000), "首个样本的阈值为 SRTT + 4 * RTTVAR");
+    }
+
+    @Test
+    @DisplayName("测试截断的UDP应答改用TCP重查并复用同一条连接")
+    void testTruncatedFallsBackToTcp() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 9});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            server.setTruncateUdp(true);
+            server.setAnswerCount(200);
+            DNSClient client = new DNSClient(engine, new DNSCache(100), server.getAddress());
+
+            for (int i = 0; i < 3; i++) {
+                DNSResponse response = client.resolve("big" + i + ".example.com").get(5, TimeUnit.SECONDS);
+                assertFalse(response.isTruncated(), "应返回TCP查询得到的完整应答");
+                assertEquals(200, response.getIPAddresses().size());
+            }
+
+            assertEquals(3, server.getTcpReceivedCount());
+            assertEquals(1, server.getTcpConnectionCount(), "多次回退应复用同一条TCP连接");
+            assertEquals(1, client.getTcpTransport().getConnectionCount());
+            client.getTcpTransport().close();
+        }
+    }
+
+    @Test
+    @DisplayName("测试TCP连接在流水线查询未应答时被对端关闭，在途查询换新连接重试")
+    void testTcpRetriesAfterConnectionClosed() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 7});
+             DNSTcpTransport tcp = new DNSTcpTransport(5000)) {
+            server.setTcpCloseAfter(5);
+
+            List<CompletableFuture<DNSResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(tcp.query("pipelined" + i + ".example.com", DNSRecordType.A, server.getAddress()));
+            }
+            for (CompletableFuture<DNSResponse> future : futures) {
+                assertEquals(List.of("10.0.0.7"), future.get(5, TimeUnit.SECONDS).getIPAddresses());
+            }
+            assertEquals(2, server.getTcpConnectionCount(), "连接关闭后应建立一条新连接重试");
+            assertEquals(10, server.getTcpReceivedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试双栈查询同时发出A和AAAA查询，返回含地址的应答")
+    void testDualStack() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 4});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            server.setDelayMillis(300);
+            DNSClient client = new DNSClient(engine, new DNSCache(100), server.getAddress());
+
+            long start = System.nanoTime();
+            DNSResponse response = client.resolveDualStack("v4only.example.com").get(5, TimeUnit.SECONDS);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(List.of("10.0.0.4"), response.getIPAddresses(), "AAAA应答为空时应返回A查询的应答");
+            assertEquals(DNSRecordType.A, response.getQuestionType());
+            assertEquals(2, server.getReceivedCount(), "A和AAAA查询都应发出");
+            assertTrue(elapsedMillis < 550, "两个查询应并行发出，实际 " + elapsedMillis + "ms");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// 报文编解码基准：查询编码，以及对语料中各类应答的索引、读取地址和格式化全部记录
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DNSCodecBenchmark {
+    @Param({"a-single", "cname-cdn", "aaaa-cname", "many-answers", "referral-glue",
+            "mx", "txt", "nxdomain-soa", "truncated-tc", "truncated-cut"})
+    public String packet;// 语料中的报文名称
+
+    private byte[] data;// 应答报文
+    private ByteBuffer sendBuffer;// 复用的查询编码缓冲区
+
+    @Setup
+    public void setup() {
+        data = DNSCorpus.load(packet);
+        sendBuffer = ByteBuffer.allocateDirect(DNSPacket.MAX_QUERY_SIZE);
+    }
+
+    // 查询编码：写入复用的直接缓冲区（查询引擎的发送路径）
+    @Benchmark
+    public int encodeQuery() {
+        sendBuffer.clear();
+        new DNSPacket("www.shop.example.org", (short) 0x1234, DNSRecordType.A, DNSPacket.DEFAULT_UDP_PAYLOAD_SIZE)
+                .writeTo(sendBuffer);
+        return sendBuffer.position();
+    }
+
+    // 查询编码：生成独立的字节数组（TCP通道和转发器使用）
+    @Benchmark
+    public byte[] encodeQueryBytes() {
+        return new DNSPacket("www.shop.example.org", (short) 0x1234, DNSRecordType.A, DNSPacket.DEFAULT_UDP_PAYLOAD_SIZE)
+                .getBytes();
+    }
+
+    // 只建立记录索引（缓存和查询引擎收到应答时的开销）
+    @Benchmark
+    public int index() {
+        return new DNSResponse(data, 0).getRecordCount();
+    }
+
+    // 索引后读取地址列表和最小TTL（解析器的常见路径）
+    @Benchmark
+    public void addresses(Blackhole blackhole) {
+        DNSResponse response = new DNSResponse(data, 0);
+        blackhole.consume(response.getIPAddresses());
+        blackhole.consume(response.getMinTtl());
+    }
+
+    // 跟随CNAME链并格式化全部记录（界面显示的路径）
+    @Benchmark
+    public void renderAll(Blackhole blackhole) {
+        DNSResponse response = new DNSResponse(data, 0);
+        blackhole.consume(response.getCanonicalName());
+        for (int i = 0; i < response.getRecordCount(); i++) {
+            blackhole.consume(response.getRecordName(i));
+            blackhole.consume(response.getRecordData(i));
+        }
+    }
+
+    // 转发应答：复制报文并回填事务ID、扣减TTL
+    @Benchmark
+    public byte[] toWire() {
+        return new DNSResponse(data, 0).toWire((short) 7, 5_000);
+    }
+}
@@ -0,0 +1,43 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+// 基准测试和单元测试共用的应答报文语料（src/test/resources/dns-corpus/*.hex，#开头的行为说明）
+final class DNSCorpus {
+    // 语料中的全部报文名称
+    static final List<String> NAMES = List.of("a-single", "cname-cdn", "aaaa-cname", "many-answers", "referral-glue",
+            "mx", "txt", "nxdomain-soa", "truncated-tc", "truncated-cut");
+
+    private DNSCorpus() {
+    }
+
+    // 读取一个报文
+    static byte[] load(String name) {
+        String resource = "/dns-corpus/" + name + ".hex";
+        try (InputStream in = DNSCorpus.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("语料不存在: " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    data.writeBytes(HexFormat.of().parseHex(line));
+                }
+            }
+            return data.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
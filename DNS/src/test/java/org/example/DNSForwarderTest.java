@@ -0,0 +1,204 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSForwarderTest {
+
+    @Test
+    @DisplayName("测试同一问题的并发查询只向上游发送一次，缓存命中时回填客户端的事务ID")
+    void testCoalescesConcurrentQueries() throws Exception {
+        try (LocalDNSServer upstream = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             DNSQueryEngine engine = new DNSQueryEngine(5000);
+             DNSForwarder forwarder = startForwarder(engine, upstream)) {
+            upstream.setDelayMillis(200);
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), forwarder.getLocalPort());
+
+            List<CompletableFuture<DNSResponse>> replies = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                short id = (short) (1000 + i);
+                replies.add(CompletableFuture.supplyAsync(() -> queryUdp(address, "burst.example.com", id)));
+            }
+            for (int i = 0; i < replies.size(); i++) {
+                DNSResponse reply = replies.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals((short) (1000 + i), reply.getTransactionId(), "应答应带回各自的事务ID");
+                assertEquals(List.of("10.0.0.1"), reply.getIPAddresses());
+            }
+            assertEquals(1, upstream.getReceivedCount(), "并发的相同查询应合并为一次上游查询");
+
+            DNSResponse cached = queryUdp(address, "BURST.example.com", (short) 4321);
+            assertEquals((short) 4321, cached.getTransactionId());
+            assertEquals("BURST.example.com", cached.getQuestionName(), "缓存命中时也应保留客户端问题的大小写");
+            assertEquals(List.of("10.0.0.1"), cached.getIPAddresses());
+            assertEquals(1, upstream.getReceivedCount(), "缓存命中时不应再查询上游");
+            assertEquals(21, forwarder.getQueryCount());
+        }
+    }
+
+    @Test
+    @DisplayName("测试转发的应答保留客户端问题域名的大小写（0x20随机化）")
+    void testPreservesQuestionCase() throws Exception {
+        try (LocalDNSServer upstream = new LocalDNSServer(new byte[]{10, 0, 0, 5});
+             DNSQueryEngine engine = new DNSQueryEngine(5000);
+             DNSForwarder forwarder = startForwarder(engine, upstream)) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), forwarder.getLocalPort());
+
+            DNSResponse reply = queryUdp(address, "WwW.ExAmPlE.CoM", (short) 11);
+            assertEquals("WwW.ExAmPlE.CoM", reply.getQuestionName());
+            assertEquals(List.of("10.0.0.5"), reply.getIPAddresses());
+        }
+    }
+
+    @Test
+    @DisplayName("测试超出客户端UDP上限的应答被截断，客户端改用TCP取得完整应答")
+    void testTruncatesLargeUdpReplies() throws Exception {
+        try (LocalDNSServer upstream = new LocalDNSServer(new byte[]{10, 0, 0, 2});
+             DNSQueryEngine engine = new DNSQueryEngine(5000);
+             DNSForwarder forwarder = startForwarder(engine, upstream)) {
+            upstream.setAnswerCount(100);// 约1.6KB，超过未携带OPT记录的客户端的512字节上限
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), forwarder.getLocalPort());
+
+            DNSResponse udpReply = queryUdp(address, "large.example.com", (short) 7);
+            assertTrue(udpReply.isTruncated(), "超长的UDP应答应置TC标志");
+            assertEquals(0, udpReply.getAnswerCount());
+            assertEquals("large.example.com", udpReply.getQuestionName());
+
+            try (Socket socket = new Socket(address.getAddress(), address.getPort());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                byte[] query = new DNSPacket("large.example.com", (short) 8, (short) 1, 0).getBytes();
+                out.writeShort(query.length);
+                out.write(query);
+                out.flush();
+                byte[] reply = new byte[in.readUnsignedShort()];
+                in.readFully(reply);
+
+                DNSResponse tcpReply = new DNSResponse(reply);
+                assertEquals(8, tcpReply.getTransactionId());
+                assertFalse(tcpReply.isTruncated());
+                assertEquals(100, tcpReply.getIPAddresses().size());
+            }
+            assertEquals(1, upstream.getReceivedCount(), "TCP重查应命中缓存");
+        }
+    }
+
+    @Test
+    @DisplayName("测试非IN类别的查询以NOTIMP应答且不转发；TCP客户端半关闭后仍收到全部流水线应答")
+    void testClassAndTcpHalfClose() throws Exception {
+        try (LocalDNSServer upstream = new LocalDNSServer(new byte[]{10, 0, 0, 3});
+             DNSQueryEngine engine = new DNSQueryEngine(5000);
+             DNSForwarder forwarder = startForwarder(engine, upstream)) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), forwarder.getLocalPort());
+
+            byte[] chaos = new DNSPacket("version.bind", (short) 9, (short) 16, 0).getBytes();
+            chaos[chaos.length - 1] = 3;// CH类别
+            DNSResponse refused = new DNSResponse(exchangeUdp(address, chaos));
+            assertEquals(4, refused.getResponseCode(), "只支持IN类别");
+            assertEquals(0, upstream.getReceivedCount());
+
+            upstream.setDelayMillis(200);
+            try (Socket socket = new Socket(address.getAddress(), address.getPort());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                for (int i = 0; i < 3; i++) {
+                    byte[] query = new DNSPacket("pipelined" + i + ".example.com", (short) (20 + i), (short) 1, 0).getBytes();
+                    out.writeShort(query.length);
+                    out.write(query);
+                }
+                out.flush();
+                socket.shutdownOutput();// 发完查询后半关闭
+
+                List<Short> ids = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    byte[] reply = new byte[in.readUnsignedShort()];
+                    in.readFully(reply);
+                    DNSResponse response = new DNSResponse(reply);
+                    assertEquals(List.of("10.0.0.3"), response.getIPAddresses());
+                    ids.add(response.getTransactionId());
+                }
+                ids.sort(null);
+                assertEquals(List.of((short) 20, (short) 21, (short) 22), ids);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试问题域名为自指压缩指针的查询以FORMERR应答，之后的UDP和TCP查询仍正常应答")
+    void testSelfPointerQuestion() throws Exception {
+        try (LocalDNSServer upstream = new LocalDNSServer(new byte[]{10, 0, 0, 4});
+             DNSQueryEngine engine = new DNSQueryEngine(5000);
+             DNSForwarder forwarder = startForwarder(engine, upstream)) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), forwarder.getLocalPort());
+            byte[] loop = {0x12, 0x34, 0x01, 0x00, 0, 1, 0, 0, 0, 0, 0, 0, (byte) 0xC0, 0x0C, 0, 1, 0, 1};
+
+            DNSResponse formerr = new DNSResponse(exchangeUdp(address, loop));
+            assertEquals(1, formerr.getResponseCode());
+            assertEquals(List.of("10.0.0.4"), queryUdp(address, "after-udp.example.com", (short) 5).getIPAddresses(),
+                    "接收线程应继续工作");
+
+            try (Socket socket = new Socket(address.getAddress(), address.getPort());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                byte[] valid = new DNSPacket("after-tcp.example.com", (short) 6, (short) 1, 0).getBytes();
+                for (byte[] query : List.of(loop, valid)) {
+                    out.writeShort(query.length);
+                    out.write(query);
+                }
+                out.flush();
+                List<Integer> responseCodes = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    byte[] reply = new byte[in.readUnsignedShort()];
+                    in.readFully(reply);
+                    DNSResponse response = new DNSResponse(reply);
+                    responseCodes.add(response.getResponseCode());
+                    if (response.getTransactionId() == 6) {
+                        assertEquals(List.of("10.0.0.4"), response.getIPAddresses());
+                    }
+                }
+                responseCodes.sort(null);
+                assertEquals(List.of(0, 1), responseCodes);
+            }
+        }
+    }
+
+    private static DNSForwarder startForwarder(DNSQueryEngine engine, LocalDNSServer upstream) throws Exception {
+        DNSClient client = new DNSClient(engine, new DNSCache(100), upstream.getAddress());
+        DNSForwarder forwarder = new DNSForwarder(client, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        forwarder.start();
+        return forwarder;
+    }
+
+    // 模拟不带EDNS的普通客户端发送一次UDP查询
+    private static DNSResponse queryUdp(InetSocketAddress forwarder, String domain, short id) {
+        return new DNSResponse(exchangeUdp(forwarder, new DNSPacket(domain, id, (short) 1, 0).getBytes()));
+    }
+
+    private static byte[] exchangeUdp(InetSocketAddress forwarder, byte[] query) {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5000);
+            socket.send(new DatagramPacket(query, query.length, forwarder));
+            byte[] buffer = new byte[65535];
+            DatagramPacket reply = new DatagramPacket(buffer, buffer.length);
+            socket.receive(reply);
+            byte[] data = new byte[reply.getLength()];
+            System.arraycopy(buffer, 0, data, 0, data.length);
+            return data;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+// 测试用的DNS报文构造器（域名不压缩）
+class DNSMessageBuilder {
+    private final int id;
+    private final int flags;
+    private final ByteArrayOutputStream question = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream answers = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream authorities = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream additionals = new ByteArrayOutputStream();
+    private int questionCount;
+    private int answerCount;
+    private int authorityCount;
+    private int additionalCount;
+
+    DNSMessageBuilder(int id, int flags) {
+        this.id = id;
+        this.flags = flags;
+    }
+
+    DNSMessageBuilder question(String name, int type) {
+        question.writeBytes(name(name));
+        writeShort(question, type);
+        writeShort(question, 1);
+        questionCount++;
+        return this;
+    }
+
+    DNSMessageBuilder answer(String name, int type, int ttl, byte[] rdata) {
+        return answer(name(name), type, ttl, rdata);
+    }
+
+    // 使用已编码的域名（可包含压缩指针）
+    DNSMessageBuilder answer(byte[] name, int type, int ttl, byte[] rdata) {
+        record(answers, name, type, ttl, rdata);
+        answerCount++;
+        return this;
+    }
+
+    DNSMessageBuilder authority(String name, int type, int ttl, byte[] rdata) {
+        record(authorities, name(name), type, ttl, rdata);
+        authorityCount++;
+        return this;
+    }
+
+    DNSMessageBuilder additional(String name, int type, int ttl, byte[] rdata) {
+        record(additionals, name(name), type, ttl, rdata);
+        additionalCount++;
+        return this;
+    }
+
+    byte[] build() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, id);
+        writeShort(out, flags);
+        writeShort(out, questionCount);
+        writeShort(out, answerCount);
+        writeShort(out, authorityCount);
+        writeShort(out, additionalCount);
+        out.writeBytes(question.toByteArray());
+        out.writeBytes(answers.toByteArray());
+        out.writeBytes(authorities.toByteArray());
+        out.writeBytes(additionals.toByteArray());
+        return out.toByteArray();
+    }
+
+    // 编码为DNS格式的域名（长度前缀 + 标签，以0结尾）
+    static byte[] name(String name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!name.isEmpty()) {
+            for (String label : name.split("\\.")) {
+                byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+                out.write(bytes.length);
+                out.writeBytes(bytes);
+            }
+        }
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    // SOA记录的RDATA
+    static byte[] soa(String mname, String rname, int minimum) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(name(mname));
+        out.writeBytes(name(rname));
+        for (int value : new int[]{1, 7200, 3600, 1209600, minimum}) {
+            writeInt(out, value);
+        }
+        return out.toByteArray();
+    }
+
+    // 压缩指针，指向报文中的偏移量
+    static byte[] pointer(int offset) {
+        return new byte[]{(byte) (0xC0 | (offset >>> 8)), (byte) offset};
+    }
+
+    // 若干标签后接压缩指针
+    static byte[] labelsThenPointer(String labels, int offset) {
+        byte[] prefix = name(labels);
+        byte[] result = new byte[prefix.length + 1];
+        System.arraycopy(prefix, 0, result, 0, prefix.length - 1);
+        System.arraycopy(pointer(offset), 0, result, prefix.length - 1, 2);
+        return result;
+    }
+
+    private static void record(ByteArrayOutputStream out, byte[] name, int type, int ttl, byte[] rdata) {
+        out.writeBytes(name);
+        writeShort(out, type);
+        writeShort(out, 1);
+        writeInt(out, ttl);
+        writeShort(out, rdata.length);
+        out.writeBytes(rdata);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value >>> 16);
+        writeShort(out, value);
+    }
+}
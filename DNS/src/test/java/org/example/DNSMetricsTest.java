@@ -0,0 +1,77 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSMetricsTest {
+
+    @Test
+    @DisplayName("测试时延直方图的分桶和百分位数")
+    void testHistogram() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = DNSLatencyHistogram.bucketOf(micros);
+            assertTrue(DNSLatencyHistogram.lowerBound(bucket) <= micros && micros < DNSLatencyHistogram.lowerBound(bucket + 1),
+                    micros + " 微秒应落在所在桶的范围内");
+        }
+
+        DNSLatencyHistogram histogram = new DNSLatencyHistogram();
+        assertEquals(0, histogram.getPercentileMillis(99), "没有样本时为0");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMeanMillis(), 0.001);
+        assertEquals(50, histogram.getPercentileMillis(50), 50 * 0.125, "误差不超过一个桶宽");
+        assertEquals(99, histogram.getPercentileMillis(99), 99 * 0.125);
+        assertTrue(histogram.getPercentileMillis(99) >= 99, "取桶的上界，不低估尾部时延");
+    }
+
+    @Test
+    @DisplayName("测试查询路径的计数，并通过JMX读取")
+    void testCountersAndJmx() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             DNSQueryEngine engine = new DNSQueryEngine(300)) {
+            DNSClient client = new DNSClient(engine, new DNSCache(100), server.getAddress());
+            DNSMetrics metrics = new DNSMetrics(client);
+
+            client.resolve("a.example.com").get(5, TimeUnit.SECONDS);
+            client.resolve("a.example.com").get(5, TimeUnit.SECONDS);// 缓存命中
+            server.setDropRate(1.0);
+            assertThrows(ExecutionException.class, () -> client.resolve("b.example.com").get(5, TimeUnit.SECONDS));
+
+            assertEquals(3, metrics.getLookups());
+            assertEquals(1, metrics.getCacheHits());
+            assertEquals(2, metrics.getCacheMisses());
+            assertEquals(1.0 / 3, metrics.getCacheHitRatio(), 0.001);
+            assertEquals(2, metrics.getUdpQueries());
+            assertEquals(1, metrics.getTimeouts());
+            assertTrue(metrics.getBytesSent() > 0 && metrics.getBytesReceived() > 0);
+            DNSUpstream upstream = client.getUpstreams().getUpstreams().get(0);
+            assertEquals(2, upstream.getQueries());
+            assertEquals(1, upstream.getTimeouts());
+            assertEquals(1, upstream.getLatency().getCount());
+            assertTrue(metrics.getDump().contains("udp.timeouts 1\n"));
+
+            metrics.register("test");
+            try {
+                MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+                assertEquals(3L, mbeans.getAttribute(new ObjectName("org.example.dns:type=Resolver,name=\"test\""), "Lookups"));
+                List<ObjectName> upstreams = List.copyOf(mbeans.queryNames(new ObjectName("org.example.dns:type=Upstream,*"), null));
+                assertEquals(1, upstreams.size());
+                assertEquals(1L, mbeans.getAttribute(upstreams.get(0), "Timeouts"));
+            } finally {
+                metrics.unregister();
+            }
+            client.getTcpTransport().close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSPacketTest {
+
+    @Test
+    @DisplayName("测试查询报文编码与标准格式一致")
+    void testEncoding() {
+        byte[] expected = new DNSMessageBuilder(0x1234, 0x0100).question("www.example.com", 1).build();
+
+        DNSPacket packet = new DNSPacket("www.example.com.", (short) 0x1234);
+        assertArrayEquals(expected, packet.getBytes(), "末尾的点不应影响编码结果");
+        assertEquals(expected.length, packet.getEncodedLength());
+    }
+
+    @Test
+    @DisplayName("测试写入调用方提供的缓冲区")
+    void testWriteToBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DNSPacket.MAX_QUERY_SIZE);
+        buffer.put((byte) 0x7F);// 从缓冲区的当前位置开始写入
+        DNSPacket packet = new DNSPacket("example.com", (short) 7);
+        packet.writeTo(buffer);
+
+        assertEquals(1 + packet.getEncodedLength(), buffer.position());
+        byte[] written = new byte[packet.getEncodedLength()];
+        buffer.get(1, written);
+        assertArrayEquals(packet.getBytes(), written);
+    }
+
+    @Test
+    @DisplayName("测试标签长度和域名总长度校验")
+    void testValidation() {
+        String label63 = "a".repeat(63);
+        assertDoesNotThrow(() -> new DNSPacket(label63 + ".com").getBytes(), "63个字符的标签应合法");
+        assertThrows(IllegalArgumentException.class, () -> new DNSPacket("a" + label63 + ".com").getBytes(),
+                "超过63个字符的标签应被拒绝");
+
+        String name253 = String.join(".", label63, label63, label63, "a".repeat(61));
+        assertDoesNotThrow(() -> new DNSPacket(name253).getBytes(), "编码后255字节的域名应合法");
+        assertThrows(IllegalArgumentException.class, () -> new DNSPacket(name253 + "a").getBytes(),
+                "编码后超过255字节的域名应被拒绝");
+
+        assertThrows(IllegalArgumentException.class, () -> new DNSPacket("www..example.com").getBytes());
+        assertThrows(IllegalArgumentException.class, () -> new DNSPacket("例子.com").getBytes());
+    }
+
+    @Test
+    @DisplayName("测试EDNS0 OPT记录通告UDP载荷大小")
+    void testEdnsOptRecord() {
+        DNSPacket packet = new DNSPacket("example.com", (short) 1, 4096);
+        byte[] data = packet.getBytes();
+        DNSResponse parsed = new DNSResponse(data);
+
+        assertEquals(1, parsed.getAdditionalCount(), "附加记录数应为1");
+        int opt = parsed.getSectionStart(DNSResponse.SECTION_ADDITIONAL);
+        assertEquals("", parsed.getRecordName(opt), "OPT记录的域名为根");
+        assertEquals(41, parsed.getRecordType(opt));
+        assertEquals(4096, parsed.getRecordClass(opt), "类别字段承载UDP载荷大小");
+        assertEquals(0, parsed.getRecordDataLength(opt));
+        assertEquals(data.length, packet.getEncodedLength());
+
+        assertThrows(IllegalArgumentException.class, () -> new DNSPacket("example.com", (short) 1, 100));
+    }
+
+    @Test
+    @DisplayName("测试查询类型编码与反向解析域名")
+    void testQueryTypes() throws Exception {
+        byte[] expected = new DNSMessageBuilder(9, 0x0100).question("example.com", 28).build();
+        assertArrayEquals(expected, new DNSPacket("example.com", (short) 9, DNSRecordType.AAAA, 0).getBytes());
+
+        assertEquals(DNSRecordType.MX, DNSRecordType.parse("mx"));
+        assertEquals(65, DNSRecordType.parse("TYPE65"));
+        assertEquals("TYPE65", DNSRecordType.name(65));
+        assertThrows(IllegalArgumentException.class, () -> DNSRecordType.parse("BOGUS"));
+
+        assertEquals("4.3.2.1.in-addr.arpa", DNSRecordType.reverseName(InetAddress.getByName("1.2.3.4")));
+        assertEquals("1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa",
+                DNSRecordType.reverseName(InetAddress.getByName("2001:db8::1")));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 反向解析扫描基准：对一个/16地址块（65536个地址）做PTR批量查询，应答来自进程内的回环UDP服务器，
+// 每次调用前换一个空缓存，测量完整扫描一遍的用时
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DNSPtrSweepBenchmark {
+    private static final int CONCURRENCY = 256;// 同时在途的查询数
+
+    private LocalDNSServer server;// 回环应答服务器
+    private DNSQueryEngine engine;// 查询引擎
+    private DNSBatchResolver batch;// 被测的批量解析器
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+        engine = new DNSQueryEngine(2000);
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        DNSClient client = new DNSClient(engine, new DNSCache(100000), server.getAddress());
+        batch = new DNSBatchResolver(client, CONCURRENCY, 1, DNSBatchResolver.OutputFormat.CSV, DNSRecordType.PTR, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.close();
+        server.close();
+    }
+
+    // 扫描10.20.0.0/16，返回收到NOERROR应答的地址数
+    @Benchmark
+    public long sweepSlash16() throws Exception {
+        LongAdder answered = new LongAdder();
+        batch.resolveAll(new BufferedReader(new StringReader("10.20.0.0/16\n")), result -> {
+            if ("NOERROR".equals(result.status())) {
+                answered.increment();
+            }
+        });
+        return answered.sum();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSQueryEngineTest {
+
+    @Test
+    @DisplayName("测试多个查询同时在途并按事务ID匹配响应")
+    void testConcurrentQueries() throws Exception {
+        try (LocalDNSServer server = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+
+            List<CompletableFuture<DNSResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(engine.query("host" + i + ".example.com", server.getAddress()));
+            }
+
+            for (CompletableFuture<DNSResponse> future : futures) {
+                DNSResponse response = future.get(5, TimeUnit.SECONDS);
+                assertEquals(List.of("10.0.0.1"), response.getIPAddresses(), "每个查询都应收到自己的应答");
+            }
+            assertEquals(200, server.getReceivedCount(), "服务器应收到200个查询");
+            assertEquals(0, engine.getInFlightCount(), "完成后不应有在途查询");
+        }
+    }
+
+    @Test
+    @DisplayName("测试无响应时查询超时")
+    void testQueryTimeout() throws Exception {
+        try (DNSQueryEngine engine = new DNSQueryEngine(200)) {
+            // 发往一个没有服务监听的本地端口
+            InetSocketAddress silent = new InetSocketAddress(InetAddress.getLoopbackAddress(), 9);
+            CompletableFuture<DNSResponse> future = engine.query("example.com", silent);
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> future.get(5, TimeUnit.SECONDS), "无响应的查询应以异常结束");
+            assertInstanceOf(TimeoutException.class, exception.getCause(), "异常原因应为超时");
+        }
+    }
+
+    @Test
+    @DisplayName("测试问题部分不符或未置QR位的应答被丢弃，只有匹配的应答完成查询")
+    void testDropsMismatchedReplies() throws Exception {
+        try (DatagramSocket server = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+             DNSQueryEngine engine = new DNSQueryEngine(2000)) {
+            server.setSoTimeout(2000);
+            CompletableFuture<DNSResponse> future = engine.query("bank.example.com",
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+
+            DatagramPacket received = new DatagramPacket(new byte[512], 512);
+            server.receive(received);
+            byte[] query = new byte[received.getLength()];
+            System.arraycopy(received.getData(), 0, query, 0, query.length);
+            short id = (short) (((query[0] & 0xFF) << 8) | (query[1] & 0xFF));
+
+            byte[] forged = new DNSPacket("evil.example.net", id, (short) 1, 0).getBytes();
+            forged[2] |= (byte) 0x80;
+            server.send(new DatagramPacket(forged, forged.length, received.getSocketAddress()));
+            server.send(new DatagramPacket(query, query.length, received.getSocketAddress()));// 原样回送的查询（QR=0）
+            Thread.sleep(200);
+            assertFalse(future.isDone(), "不匹配的应答不应完成查询");
+
+            byte[] reply = query.clone();
+            reply[2] |= (byte) 0x80;
+            server.send(new DatagramPacket(reply, reply.length, received.getSocketAddress()));
+            DNSResponse response = future.get(2, TimeUnit.SECONDS);
+            assertEquals("bank.example.com", response.getQuestionName());
+            assertEquals(0, engine.getInFlightCount());
+        }
+    }
+}
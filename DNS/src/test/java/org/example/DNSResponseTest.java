@@ -0,0 +1,165 @@
+package org.example;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DNSResponseTest {
+
+    private static final int QUESTION_NAME = 12;// 问题部分域名的偏移量
+
+    @Test
+    @DisplayName("测试按部分索引记录并解压域名")
+    void testSectionsAndCompression() {
+        byte[] data = new DNSMessageBuilder(0xBEEF, 0x8180)
+                .question("www.example.com", 1)
+                .answer(DNSMessageBuilder.pointer(QUESTION_NAME), 5, 300,
+                        DNSMessageBuilder.labelsThenPointer("cdn", QUESTION_NAME + 4))
+                .answer(DNSMessageBuilder.labelsThenPointer("cdn", QUESTION_NAME + 4), 1, 60, new byte[]{93, (byte) 184, (byte) 216, 34})
+                .authority("example.com", 2, 3600, DNSMessageBuilder.name("ns1.example.com"))
+                .additional("ns1.example.com", 1, 3600, new byte[]{10, 0, 0, 53})
+                .build();
+        DNSResponse response = new DNSResponse(data);
+
+        assertAll("索引结果",
+                () -> assertEquals((short) 0xBEEF, response.getTransactionId()),
+                () -> assertEquals("www.example.com", response.getQuestionName()),
+                () -> assertEquals(1, response.getQuestionType()),
+                () -> assertEquals(4, response.getRecordCount()),
+                () -> assertEquals(0, response.getSectionStart(DNSResponse.SECTION_ANSWER)),
+                () -> assertEquals(2, response.getSectionStart(DNSResponse.SECTION_AUTHORITY)),
+                () -> assertEquals(3, response.getSectionStart(DNSResponse.SECTION_ADDITIONAL)),
+                () -> assertEquals(4, response.getSectionEnd(DNSResponse.SECTION_ADDITIONAL))
+        );
+
+        assertEquals("www.example.com", response.getRecordName(0));
+        assertEquals(5, response.getRecordType(0));
+        assertEquals("cdn.example.com", response.readName(response.getRecordDataOffset(0)));
+        assertEquals("cdn.example.com", response.getRecordName(1));
+        assertEquals(0x5DB8D822, response.getIPv4Address(1));
+        assertEquals(60, response.getMinTtl());
+        assertEquals(List.of("93.184.216.34"), response.getIPAddresses());
+    }
+
+    @Test
+    @DisplayName("测试按需返回InetAddress和原始地址字节")
+    void testAddresses() throws Exception {
+        byte[] ipv6 = InetAddress.getByName("2001:db8::1").getAddress();
+        DNSResponse response = new DNSResponse(new DNSMessageBuilder(1, 0x8180)
+                .question("example.com", 28)
+                .answer("example.com", 28, 60, ipv6)
+                .build());
+
+        assertArrayEquals(ipv6, response.getAddressBytes(0));
+        assertEquals(InetAddress.getByName("2001:db8::1"), response.getInetAddress(0));
+        assertEquals(List.of("2001:db8:0:0:0:0:0:1"), response.getIPAddresses(), "AAAA记录也应出现在地址列表中");
+        assertEquals(List.of("2001:db8:0:0:0:0:0:1"), response.getAnswerData(DNSRecordType.AAAA));
+    }
+
+    @Test
+    @DisplayName("测试在应答内跟随CNAME链取得目标记录")
+    void testCnameChain() {
+        DNSResponse response = new DNSResponse(new DNSMessageBuilder(1, 0x8180)
+                .question("www.example.com", 28)
+                .answer("www.example.com", 5, 300, DNSMessageBuilder.name("edge.example.net"))
+                .answer("edge.example.net", 5, 300, DNSMessageBuilder.name("v6.example.net"))
+                .answer("other.example.net", 28, 60, new byte[16])
+                .answer("V6.example.net", 28, 60, new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2})
+                .build());
+
+        assertEquals("v6.example.net", response.getCanonicalName());
+        assertEquals(List.of("2001:db8:0:0:0:0:0:2"), response.getAnswerData(DNSRecordType.AAAA), "只取链终点的记录，域名不区分大小写");
+        assertEquals(List.of("edge.example.net."), response.getAnswerData(DNSRecordType.CNAME), "CNAME查询取问题域名自身的记录");
+
+        DNSResponse loop = new DNSResponse(new DNSMessageBuilder(1, 0x8180)
+                .question("a.example.com", 1)
+                .answer("a.example.com", 5, 300, DNSMessageBuilder.name("b.example.com"))
+                .answer("b.example.com", 5, 300, DNSMessageBuilder.name("a.example.com"))
+                .build());
+        assertTrue(loop.getAnswerData(DNSRecordType.A).isEmpty(), "环状CNAME链应在有限步内结束");
+    }
+
+    @Test
+    @DisplayName("测试MX、TXT、NS、PTR、SOA及未知类型记录的文本格式")
+    void testRecordData() {
+        byte[] mx = new byte[]{0, 10, 4, 'm', 'a', 'i', 'l', (byte) 0xC0, QUESTION_NAME};
+        byte[] txt = new byte[]{5, 'h', 'e', 'l', 'l', 'o', 3, 'a', '"', 'b'};
+        DNSResponse response = new DNSResponse(new DNSMessageBuilder(1, 0x8180)
+                .question("example.com", 15)
+                .answer(DNSMessageBuilder.pointer(QUESTION_NAME), 15, 60, mx)
+                .answer("example.com", 16, 60, txt)
+                .answer("example.com", 2, 60, DNSMessageBuilder.name("ns1.example.com"))
+                .answer("4.3.2.1.in-addr.arpa", 12, 60, DNSMessageBuilder.name("host.example.com"))
+                .answer("example.com", 6, 60, DNSMessageBuilder.soa("ns1.example.com", "admin.example.com", 300))
+                .answer("example.com", 99, 60, new byte[]{(byte) 0xAB, 0x01})
+                .build());
+
+        assertEquals("10 mail.example.com.", response.getRecordData(0), "MX中的域名可使用压缩指针");
+        assertEquals("\"hello\" \"a\\\"b\"", response.getRecordData(1));
+        assertEquals("ns1.example.com.", response.getRecordData(2));
+        assertEquals("host.example.com.", response.getRecordData(3));
+        assertEquals("ns1.example.com. admin.example.com. 1 7200 3600 1209600 300", response.getRecordData(4));
+        assertEquals("\\# 2 ab01", response.getRecordData(5));
+        assertEquals(List.of("10 mail.example.com."), response.getAnswerData(DNSRecordType.MX));
+    }
+
+    @Test
+    @DisplayName("测试压缩指针循环被拒绝")
+    void testPointerLoop() {
+        byte[] data = new DNSMessageBuilder(1, 0x8180)
+                .question("example.com", 1)
+                .answer(DNSMessageBuilder.pointer(QUESTION_NAME), 1, 60, new byte[]{1, 2, 3, 4})
+                .build();
+        int recordName = data.length - 16;
+        data[recordName] = (byte) 0xC0;
+        data[recordName + 1] = (byte) recordName;// 指向自身
+
+        DNSResponse response = new DNSResponse(data);
+        assertEquals(1, response.getRecordCount(), "索引阶段不跟随指针");
+        assertThrows(IllegalStateException.class, () -> response.getRecordName(0), "自指针应被识别为循环");
+    }
+
+    @Test
+    @DisplayName("测试截断报文只保留完整的记录")
+    void testTruncatedData() {
+        byte[] data = new DNSMessageBuilder(1, 0x8180)
+                .question("example.com", 1)
+                .answer("example.com", 1, 60, new byte[]{1, 2, 3, 4})
+                .answer("example.com", 1, 60, new byte[]{5, 6, 7, 8})
+                .build();
+        byte[] truncated = Arrays.copyOf(data, data.length - 2);
+
+        DNSResponse response = new DNSResponse(truncated);
+        assertEquals(2, response.getAnswerCount(), "头部计数保持原样");
+        assertEquals(1, response.getRecordCount(), "只索引完整的记录");
+        assertEquals(List.of("1.2.3.4"), response.getIPAddresses());
+    }
+
+    @Test
+    @DisplayName("测试基准语料中的报文均可解析，只有中途截断的报文缺少记录")
+    void testCorpus() {
+        for (String name : DNSCorpus.NAMES) {
+            DNSResponse response = new DNSResponse(DNSCorpus.load(name));
+            int declared = (response.getAnswerCount() & 0xFFFF) + (response.getAuthorityCount() & 0xFFFF)
+                    + (response.getAdditionalCount() & 0xFFFF);
+            if (name.equals("truncated-cut")) {
+                assertTrue(response.getRecordCount() < declared, name);
+            } else {
+                assertEquals(declared, response.getRecordCount(), name);
+            }
+            for (int i = 0; i < response.getRecordCount(); i++) {
+                if (response.getRecordType(i) == DNSRecordType.OPT) {
+                    continue;// OPT伪记录没有文本格式
+                }
+                assertFalse(response.getRecordData(i).startsWith("\\#"), name + " 第" + i + "条记录");
+            }
+        }
+        assertTrue(new DNSResponse(DNSCorpus.load("truncated-tc")).isTruncated());
+        assertEquals(4, new DNSResponse(DNSCorpus.load("cname-cdn")).getAnswerData(DNSRecordType.A).size());
+    }
+}
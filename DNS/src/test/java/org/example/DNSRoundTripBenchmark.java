@@ -0,0 +1,66 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// 端到端基准：经查询引擎向进程内的回环UDP服务器发送查询并等待应答，以及客户端缓存命中的路径
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DNSRoundTripBenchmark {
+    private LocalDNSServer server;// 回环应答服务器
+    private DNSQueryEngine engine;// 被测的查询引擎
+    private DNSClient client;// 带缓存的客户端
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LocalDNSServer(new byte[]{10, 0, 0, 1});
+        engine = new DNSQueryEngine(2000);
+        client = new DNSClient(engine, new DNSCache(1000), server.getAddress());
+        client.resolve("cached.example.com").join();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        client.getTcpTransport().close();
+        server.close();
+    }
+
+    // 单线程依次往返（衡量单次查询的时延开销）
+    @Benchmark
+    @Threads(1)
+    public DNSResponse queryOneAtATime() {
+        return engine.query("www.example.com", server.getAddress()).join();
+    }
+
+    // 多线程并发往返（衡量共享通道和事务ID分发的吞吐量）
+    @Benchmark
+    @Threads(8)
+    public DNSResponse queryConcurrent() {
+        return engine.query("www.example.com", server.getAddress()).join();
+    }
+
+    // 缓存命中，不经过网络
+    @Benchmark
+    @Threads(1)
+    public DNSResponse cacheHit() {
+        return client.resolve("cached.example.com").join();
+    }
+}
@@ -0,0 +1,274 @@
+package org.example;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 测试用的本地DNS服务器：在同一端口上提供UDP和TCP服务，对每个A查询回答若干条A记录，对PTR查询回答一条指向问题域名本身的PTR记录（其他类型返回空应答），
+// 可模拟应答延迟、丢包，以及UDP应答截断（TC）
+class LocalDNSServer implements AutoCloseable {
+    private final DatagramSocket socket;
+    private final ServerSocket tcpSocket;
+    private final Thread worker;
+    private final Thread tcpAcceptor;
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger tcpReceived = new AtomicInteger();
+    private final AtomicInteger tcpConnections = new AtomicInteger();
+    private final byte[] address;// 应答中返回的IPv4地址
+    private volatile int ttl = 60;// 应答记录的TTL（秒）
+    private volatile int answerCount = 1;// 每个应答中的A记录数
+    private volatile boolean truncateUdp;// UDP应答是否只返回带TC标志的空应答
+    private volatile long delayMillis;// 应答延迟（毫秒）
+    private volatile double dropRate;// 丢弃查询的比例（0~1）
+    private volatile int responseCode;// 应答的RCODE，非0时不返回记录
+    private volatile boolean selfPointerOwner;// 回答记录的所有者名是否写成指向自身的压缩指针（格式错误的应答）
+    private volatile int tcpCloseAfter;// 大于0时，下一条TCP连接收到这么多查询后不应答直接关闭
+    private volatile byte[] lastQuery;// 最近收到的查询报文
+    private final ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-dns-delayer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    LocalDNSServer(byte[] address) throws IOException {
+        this.address = address;
+        // UDP端口随机分配，TCP绑定同一端口号；该端口的TCP可能已被占用（例如其他连接的本地端口），此时换一个端口重试
+        DatagramSocket udp;
+        ServerSocket tcp = null;
+        for (int attempt = 1; ; attempt++) {
+            udp = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            try {
+                tcp = new ServerSocket(udp.getLocalPort(), 50, InetAddress.getLoopbackAddress());
+                break;
+            } catch (BindException e) {
+                udp.close();
+                if (attempt >= 10) {
+                    throw e;
+                }
+            }
+        }
+        this.socket = udp;
+        this.tcpSocket = tcp;
+        this.worker = new Thread(this::serve, "local-dns-server");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        this.tcpAcceptor = new Thread(this::acceptTcp, "local-dns-tcp");
+        this.tcpAcceptor.setDaemon(true);
+        this.tcpAcceptor.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+    }
+
+    int getReceivedCount() {
+        return received.get();
+    }
+
+    int getTcpReceivedCount() {
+        return tcpReceived.get();
+    }
+
+    int getTcpConnectionCount() {
+        return tcpConnections.get();
+    }
+
+    byte[] getLastQuery() {
+        return lastQuery;
+    }
+
+    void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
+
+    void setAnswerCount(int answerCount) {
+        this.answerCount = answerCount;
+    }
+
+    void setTruncateUdp(boolean truncateUdp) {
+        this.truncateUdp = truncateUdp;
+    }
+
+    void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    void setSelfPointerOwner(boolean selfPointerOwner) {
+        this.selfPointerOwner = selfPointerOwner;
+    }
+
+    void setTcpCloseAfter(int tcpCloseAfter) {
+        this.tcpCloseAfter = tcpCloseAfter;
+    }
+
+    void setResponseCode(int responseCode) {
+        this.responseCode = responseCode;
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                socket.receive(request);
+                received.incrementAndGet();
+                lastQuery = Arrays.copyOf(request.getData(), request.getLength());
+                if (ThreadLocalRandom.current().nextDouble() < dropRate) {
+                    continue;
+                }
+                byte[] reply = buildReply(request.getData(), request.getLength(), truncateUdp);
+                DatagramPacket response = new DatagramPacket(reply, reply.length, request.getSocketAddress());
+                if (delayMillis > 0) {
+                    delayer.schedule(() -> send(response), delayMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    send(response);
+                }
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void send(DatagramPacket response) {
+        try {
+            socket.send(response);
+        } catch (IOException e) {
+            // 服务器已关闭
+        }
+    }
+
+    private void acceptTcp() {
+        while (!tcpSocket.isClosed()) {
+            try {
+                Socket connection = tcpSocket.accept();
+                tcpConnections.incrementAndGet();
+                Thread handler = new Thread(() -> serveTcp(connection), "local-dns-tcp-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // 处理一个TCP连接上的多个查询（每条报文带2字节长度前缀）
+    private void serveTcp(Socket connection) {
+        try (connection;
+             DataInputStream in = new DataInputStream(connection.getInputStream());
+             DataOutputStream out = new DataOutputStream(connection.getOutputStream())) {
+            int closeAfter;
+            synchronized (this) {
+                closeAfter = tcpCloseAfter;
+                tcpCloseAfter = 0;
+            }
+            for (int count = 1; ; count++) {
+                int length = in.readUnsignedShort();
+                byte[] query = new byte[length];
+                in.readFully(query);
+                tcpReceived.incrementAndGet();
+                if (closeAfter > 0) {
+                    if (count >= closeAfter) {
+                        return;// 丢下已收到的查询关闭连接
+                    }
+                    continue;
+                }
+                byte[] reply = buildReply(query, length, false);
+                synchronized (out) {
+                    out.writeShort(reply.length);
+                    out.write(reply);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        }
+    }
+
+    // 复制查询的头部和问题部分，置上响应标志，并追加指向问题域名的A记录
+    private byte[] buildReply(byte[] query, int length, boolean truncated) {
+        int questionEnd = DNSPacket.HEADER_SIZE;
+        while (query[questionEnd] != 0) {
+            questionEnd += (query[questionEnd] & 0xFF) + 1;
+        }
+        questionEnd += 5;
+        int type = ((query[questionEnd - 4] & 0xFF) << 8) | (query[questionEnd - 3] & 0xFF);
+
+        int answers = truncated || type != 1 ? 0 : answerCount;// 只有A记录，其他类型返回空应答
+        if (responseCode != 0) {
+            answers = 0;
+        } else if (type == 12 && !truncated) {
+            answers = 1;// PTR
+        }
+        byte[] reply = new byte[questionEnd + answers * (type == 12 ? 14 : 16)];
+        System.arraycopy(query, 0, reply, 0, questionEnd);
+        reply[2] = (byte) (truncated ? 0x83 : 0x81);
+        reply[3] = (byte) (0x80 | responseCode);
+        reply[6] = (byte) (answers >>> 8);
+        reply[7] = (byte) answers; // 回答数
+        reply[10] = 0;
+        reply[11] = 0; // 不返回附加记录
+
+        int p = questionEnd;
+        for (int i = 0; i < answers; i++) {
+            if (selfPointerOwner) {
+                reply[p] = (byte) (0xC0 | (p >>> 8));
+                reply[p + 1] = (byte) p;
+                p += 2;
+            } else {
+                reply[p++] = (byte) 0xC0;
+                reply[p++] = 0x0C; // 压缩指针，指向问题部分的域名
+            }
+            reply[p++] = 0;
+            reply[p++] = (byte) type; // A或PTR
+            reply[p++] = 0;
+            reply[p++] = 1; // IN
+            reply[p++] = (byte) (ttl >>> 24);
+            reply[p++] = (byte) (ttl >>> 16);
+            reply[p++] = (byte) (ttl >>> 8);
+            reply[p++] = (byte) ttl;
+            if (type == 12) {
+                reply[p++] = 0;
+                reply[p++] = 2;
+                reply[p++] = (byte) 0xC0;
+                reply[p++] = 0x0C; // 指向问题部分的域名
+                continue;
+            }
+            reply[p++] = 0;
+            reply[p++] = 4;
+            System.arraycopy(address, 0, reply, p, 4);
+            p += 4;
+        }
+        return reply;
+    }
+
+    @Override
+    public void close() {
+        delayer.shutdownNow();
+        socket.close();
+        try {
+            tcpSocket.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}